@@ -38,6 +38,8 @@ public class MainActivity extends AppCompatActivity {
     private static final String KEY_CALC_EXPRESSION = "key_calc_expression";
     private static final String KEY_CALC_CURRENT = "key_calc_current";
     private static final String KEY_CALC_START_NEW = "key_calc_start_new";
+    private static final String KEY_CALC_EXACT = "key_calc_exact";
+    private static final String KEY_CALC_REGISTERS = "key_calc_registers";
     private static final String KEY_DISPLAY_EXPRESSION = "key_display_expression";
     private static final String KEY_DISPLAY_RESULT = "key_display_result";
     private static final String KEY_ADVANCED_EXPANDED = "key_advanced_expanded";
@@ -61,6 +63,8 @@ public class MainActivity extends AppCompatActivity {
     private boolean isTextToSpeechReady = false;
     private String lastSpokenIntermediate = "";
     private final Handler speechHandler = new Handler(Looper.getMainLooper());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final EvaluationPipeline evaluationPipeline = new EvaluationPipeline(mainHandler::post);
     private String scheduledIntermediateResult = "";
     private long lastButtonFeedbackTimestamp = 0L;
     private boolean voiceFeedbackEnabled = false;
@@ -162,6 +166,8 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // O vocabulário de voz é montado enquanto a tela carrega.
+        VoiceCommandProcessor.preloadInBackground();
         setContentView(R.layout.activity_main);
 
         // Initialize views
@@ -566,25 +572,28 @@ public class MainActivity extends AppCompatActivity {
 
     private void setupFunctionButtons() {
         findViewById(R.id.btnEquals).setOnClickListener(v -> {
-            try {
-                android.util.Log.d("MainActivity", "Equals clicked - expression: " + calculator.getFullExpression());
-                String result = calculator.calculate();
-                android.util.Log.d("MainActivity", "Result: " + result);
-                // Show the completed expression and result, then reset state keeping result as current number
-                tvExpression.setText(calculator.getFullExpression() + " =");
-                tvResult.setText(formatNumber(result));
-                calculator.clear();
-                calculator.setCurrentNumber(result);
-                speakButtonFeedback("=");
-                speakResult(result);
-            } catch (ArithmeticException e) {
-                android.util.Log.e("MainActivity", "Error calculating: " + e.getMessage());
-                Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
-                speakButtonFeedback(e.getMessage());
-            } catch (Exception e) {
-                android.util.Log.e("MainActivity", "Unexpected error: " + e.getMessage(), e);
-                Toast.makeText(this, "Erro ao calcular", Toast.LENGTH_SHORT).show();
-            }
+            android.util.Log.d("MainActivity", "Equals clicked - expression: " + calculator.getFullExpression());
+            evaluationPipeline.calculate(calculator.snapshot(), new EvaluationPipeline.ResultListener() {
+                @Override
+                public void onResult(Calculator.Snapshot snapshot, String result, BigDecimal value) {
+                    android.util.Log.d("MainActivity", "Result: " + result);
+                    showFinalResult(snapshot, result, value);
+                    speakButtonFeedback("=");
+                    speakResult(result);
+                }
+
+                @Override
+                public void onError(Calculator.Snapshot snapshot, Exception e) {
+                    if (e instanceof ArithmeticException) {
+                        android.util.Log.e("MainActivity", "Error calculating: " + e.getMessage());
+                        Toast.makeText(MainActivity.this, e.getMessage(), Toast.LENGTH_SHORT).show();
+                        speakButtonFeedback(e.getMessage());
+                    } else {
+                        android.util.Log.e("MainActivity", "Unexpected error: " + e.getMessage(), e);
+                        Toast.makeText(MainActivity.this, "Erro ao calcular", Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         });
 
         findViewById(R.id.btnClear).setOnClickListener(v -> {
@@ -713,7 +722,9 @@ public class MainActivity extends AppCompatActivity {
         boolean shouldStartNewNumber = state.getBoolean(KEY_CALC_START_NEW, true);
 
         if (calculator != null) {
+            calculator.restoreRegisters(Registers.fromStrings(state.getStringArray(KEY_CALC_REGISTERS)));
             calculator.restoreState(calcExpression, calcCurrent, shouldStartNewNumber);
+            calculator.setExactMode(state.getBoolean(KEY_CALC_EXACT, false));
         }
 
         advancedExpanded = showAdvancedControls && state.getBoolean(KEY_ADVANCED_EXPANDED, showAdvancedControls);
@@ -796,11 +807,26 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
 
+            if (processed.equals("MC")) {
+                calculator.memoryClear();
+                return;
+            }
+
+            if (processed.equals("EXACT") || processed.equals("DECIMAL")) {
+                calculator.setExactMode(processed.equals("EXACT"));
+                updateDisplay();
+                return;
+            }
+
             boolean calculate = processed.endsWith("=");
             if (calculate) {
                 processed = VoiceCommandProcessor.cleanExpression(processed);
             }
 
+            // STO A, M+ e M− vêm no fim, depois da expressão cujo valor guardam
+            String registerCommand = null;
+            String registerTarget = null;
+
             // Process the expression with better handling of numbers with commas
             String[] parts = processed.split("\\s+");
             for (int idx = 0; idx < parts.length; idx++) {
@@ -809,7 +835,23 @@ public class MainActivity extends AppCompatActivity {
                     continue;
                 }
 
-                if (token.matches("\\d+(,\\d+)?")) {
+                if (token.equals("STO") && idx + 1 < parts.length) {
+                    registerCommand = token;
+                    registerTarget = parts[++idx];
+                    continue;
+                }
+
+                if (token.equals("M+") || token.equals("M−")) {
+                    registerCommand = token;
+                    continue;
+                }
+
+                if (Registers.slot(token) >= 0) {
+                    calculator.appendRegister(token);
+                    continue;
+                }
+
+                if (isDigitsWithComma(token)) {
                     for (char digit : token.toCharArray()) {
                         if (digit == ',') {
                             calculator.appendDecimal();
@@ -875,27 +917,32 @@ public class MainActivity extends AppCompatActivity {
                 }
             }
 
-            if (calculate) {
-                try {
-                    String result = calculator.calculate();
-                    tvExpression.setText(calculator.getFullExpression() + " =");
-                    tvResult.setText(formatNumber(result));
-                    calculator.clear();
-                    calculator.setCurrentNumber(result);
-                    speakResult(result);
-                } catch (Exception e) {
-                    Toast.makeText(this, "Erro ao calcular: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    speakButtonFeedback(e.getMessage());
-                }
-            } else {
-                updateDisplay();
-                if (calculator.hasCompleteExpression()) {
-                    String partialResult = calculator.evaluatePartial();
-                    if (partialResult != null && !partialResult.isEmpty()
-                            && !"Erro".equalsIgnoreCase(partialResult)) {
-                        speakResult(partialResult);
+            if (calculate || registerCommand != null) {
+                String command = registerCommand;
+                String target = registerTarget;
+                evaluationPipeline.calculate(calculator.snapshot(), new EvaluationPipeline.ResultListener() {
+                    @Override
+                    public void onResult(Calculator.Snapshot snapshot, String result, BigDecimal value) {
+                        if ("STO".equals(command)) {
+                            calculator.store(target, value);
+                        } else if ("M+".equals(command)) {
+                            calculator.memoryAdd(value);
+                        } else if ("M−".equals(command)) {
+                            calculator.memorySubtract(value);
+                        }
+                        showFinalResult(snapshot, result, value);
+                        runWithVoiceFeedback(() -> speakResult(result));
                     }
-                }
+
+                    @Override
+                    public void onError(Calculator.Snapshot snapshot, Exception e) {
+                        Toast.makeText(MainActivity.this, "Erro ao calcular: " + e.getMessage(),
+                                Toast.LENGTH_SHORT).show();
+                        runWithVoiceFeedback(() -> speakButtonFeedback(e.getMessage()));
+                    }
+                });
+            } else {
+                updateDisplay(true);
             }
         } finally {
             voiceFeedbackEnabled = false;
@@ -905,17 +952,78 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void updateDisplay() {
-        // Show the expression being built and the incremental evaluated result
-        String expression = calculator.getFullExpression();
+        updateDisplay(false);
+    }
+
+    /**
+     * @param announceResult fala o resultado parcial assim que ele chegar (entrada por voz)
+     */
+    private void updateDisplay(boolean announceResult) {
+        // Show the expression being built; the incremental result is evaluated off the main thread
+        Calculator.Snapshot snapshot = calculator.snapshot();
+        String expression = snapshot.getFullExpression();
         tvExpression.setText(expression);
 
-        if (calculator.hasCompleteExpression()) {
-            String partialResult = calculator.evaluatePartial();
+        if (!snapshot.isComplete()) {
+            // Nada para avaliar: descarta a prévia pendente sem passar pela thread de avaliação
+            evaluationPipeline.cancel();
+            showIncompleteResult(expression);
+            return;
+        }
+
+        evaluationPipeline.preview(snapshot, (evaluated, partialResult) -> {
+            if (partialResult == null) {
+                showIncompleteResult(expression);
+                return;
+            }
             tvResult.setText(formatNumber(partialResult));
-            maybeSpeakIntermediateResult(expression, partialResult);
-        } else {
-            tvResult.setText(expression.isEmpty() ? getString(R.string.display_zero) : "");
-            lastSpokenIntermediate = "";
+            if (!announceResult) {
+                maybeSpeakIntermediateResult(expression, partialResult);
+            } else if (!partialResult.isEmpty() && !"Erro".equalsIgnoreCase(partialResult)) {
+                runWithVoiceFeedback(() -> speakResult(partialResult));
+            }
+        });
+    }
+
+    // Número do visor vindo da voz: dígitos e, opcionalmente, vírgula e mais dígitos.
+    private static boolean isDigitsWithComma(String token) {
+        int comma = token.indexOf(',');
+        int end = comma < 0 ? token.length() : comma;
+        if (end == 0 || (comma >= 0 && comma == token.length() - 1)) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if ((c < '0' || c > '9') && i != comma) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void showIncompleteResult(String expression) {
+        tvResult.setText(expression.isEmpty() ? getString(R.string.display_zero) : "");
+        lastSpokenIntermediate = "";
+    }
+
+    private void showFinalResult(Calculator.Snapshot snapshot, String result, BigDecimal value) {
+        // Show the completed expression and result, then reset state keeping result as current number
+        tvExpression.setText(snapshot.getFullExpression() + " =");
+        tvResult.setText(formatNumber(result));
+        calculator.setResult(value);
+    }
+
+    /**
+     * Resultados de voz chegam depois que {@link #processVoiceInput} terminou;
+     * reativa o retorno falado só enquanto eles são anunciados.
+     */
+    private void runWithVoiceFeedback(Runnable action) {
+        boolean previous = voiceFeedbackEnabled;
+        voiceFeedbackEnabled = true;
+        try {
+            action.run();
+        } finally {
+            voiceFeedbackEnabled = previous;
         }
     }
 
@@ -986,6 +1094,8 @@ public class MainActivity extends AppCompatActivity {
             outState.putString(KEY_CALC_EXPRESSION, calculator.getExpression());
             outState.putString(KEY_CALC_CURRENT, calculator.getCurrentNumberRaw());
             outState.putBoolean(KEY_CALC_START_NEW, calculator.isReadyForNewNumber());
+            outState.putBoolean(KEY_CALC_EXACT, calculator.isExactMode());
+            outState.putStringArray(KEY_CALC_REGISTERS, calculator.getRegisters().toStrings());
         }
         if (tvExpression != null) {
             outState.putString(KEY_DISPLAY_EXPRESSION, tvExpression.getText().toString());
@@ -1014,6 +1124,7 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onDestroy() {
+        evaluationPipeline.shutdown();
         if (adView != null) {
             adView.destroy();
             adView = null;
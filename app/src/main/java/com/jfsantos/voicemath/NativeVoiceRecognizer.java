@@ -7,10 +7,6 @@ import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
 
-import com.jfsantos.calculadorainteligente.VoiceCommandProcessor;
-
-import org.mariuszgromada.math.mxparser.Expression;
-
 import java.util.ArrayList;
 import java.util.Locale;
 
@@ -27,47 +23,17 @@ public class NativeVoiceRecognizer {
 
     /**
      * Converte entrada de voz em expressão matemática e calcula usando mXparser
-     * Integra normalização + conversão + avaliação
+     * @see MXParserBridge#calculate(String)
      */
     public static String calculateWithMXParser(String input) {
-        if (input == null || input.trim().isEmpty()) return "";
-        
-        // 1. Normaliza removendo prefixos de contexto
-        String normalized = normalizeMathPhrase(input);
-        
-        // 2. Utiliza o novo parser para obter expressão avaliável
-        VoiceCommandProcessor.ProcessResult parsed = VoiceCommandProcessor.processVoiceCommandDetailed(normalized);
-
-    if (parsed.getCommand() != VoiceCommandProcessor.CommandType.NONE) {
-            return "";
-        }
-
-        String mathExpression = parsed.getMathExpression();
-        if (mathExpression == null || mathExpression.trim().isEmpty()) {
-            return "Expressão inválida";
-        }
-
-    Expression mxExpr = new Expression(mathExpression);
-    double result = mxExpr.calculate();
-
-        if (Double.isNaN(result) || Double.isInfinite(result)) {
-            return "Expressão inválida: " + mathExpression;
-        }
-
-        String formatted = String.format(Locale.US, "%.10f", result)
-                .replaceAll("0+$", "")
-                .replaceAll("\\.$", "")
-                .replace('.', ',');
-        if (formatted.isEmpty()) {
-            formatted = "0";
-        }
-        return formatted;
+        return MXParserBridge.calculate(input);
     }
     private boolean isListening = false;
 
     public NativeVoiceRecognizer(Activity context) {
         this.context = context;
         this.recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+        MXParserBridge.warmUpInBackground();
     }
 
     public void setLanguage(Locale locale) {
@@ -109,23 +75,10 @@ public class NativeVoiceRecognizer {
 
     /**
      * Normaliza frases comuns de comando matemático para facilitar o reconhecimento
-     * Remove prefixos como "quanto é", "calcule", "qual o resultado de", etc.
-     * E remove sufixos como "por favor", "igual", "resultado"
+     * @see MXParserBridge#normalizeMathPhrase(String)
      */
     public static String normalizeMathPhrase(String input) {
-        if (input == null) return "";
-        String text = input.toLowerCase().trim();
-        
-        // Remove prefixos de contexto
-        text = text.replaceAll("^(quanto é|quanto que é|quanto vale|quanto que vale|calcule|calculate|faça a conta de|qual o resultado de|qual é o resultado de|resultado de|me diga|me mostra|me mostre|me informe|me fala|me fale|quero saber|preciso saber)\\s+", "");
-        
-        // Remove sufixos de comando
-        text = text.replaceAll("\\s+(por favor|pf|pfv|obrigado|obrigada|valeu|resultado|igual|igualmente|calcula|calculate)$", "");
-        
-        // Remove "interrogação" e "ponto de interrogação" no final
-        text = text.replaceAll("\\s+(interrogação|ponto de interrogação|\\?)$", "");
-        
-        return text.trim();
+        return MXParserBridge.normalizeMathPhrase(input);
     }
 
     private class SpeechRecognitionListenerAdapter implements RecognitionListener {
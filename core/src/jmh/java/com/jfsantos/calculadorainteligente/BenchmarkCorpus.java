@@ -0,0 +1,102 @@
+package com.jfsantos.calculadorainteligente;
+
+import com.jfsantos.voicemath.MXParserBridge;
+
+/**
+ * Frases usadas pelos benchmarks, tiradas dos casos de VoiceRecognitionTest e
+ * VoiceCommandProcessorTest. Frases mais longas são formadas juntando vários
+ * casos com "mais", então o tamanho cresce sem mudar o vocabulário.
+ */
+final class BenchmarkCorpus {
+    /** Quantidade de frases distintas em cada corpus, para não medir só uma. */
+    static final int SIZE = 64;
+
+    // VoiceRecognitionTest
+    private static final String[] RECOGNITION_CASES = {
+            "cinco mais três",
+            "dez menos quatro",
+            "seis vezes sete",
+            "vinte dividido por quatro",
+            "vinte e dois mais oito",
+            "trinta e cinco vezes dois",
+            "cinco ao quadrado",
+            "três ao cubo",
+            "raiz quadrada de dezesseis",
+            "dez mais cinco vezes dois",
+            "três vírgula cinco mais um vírgula cinco",
+            "cento e vinte mais trinta",
+            "mil dividido por dois",
+            "noventa e nove mais um",
+            "cem dividido por dois mais dez",
+            "zero mais zero",
+    };
+
+    // VoiceCommandProcessorTest
+    private static final String[] PROCESSOR_CASES = {
+            "vinte e cinco",
+            "quarenta e sete",
+            "duzentos e trinta e quatro",
+            "quatrocentos e cinquenta e seis",
+            "dois mil trezentos e quarenta e cinco",
+            "cento e vinte e três mil",
+            "dois virgula cinco",
+            "dez virgula zero cinco",
+            "vinte e um menos dez",
+            "dois mil vezes três",
+            "cem dividido por cinco",
+    };
+
+    // Prefixos e sufixos que normalizeMathPhrase remove, como em testNormalization.
+    private static final String[] PREFIXES = {"", "quanto é ", "calcule "};
+    private static final String[] SUFFIXES = {"", " por favor", " igual"};
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * {@link #SIZE} frases faladas com {@code terms} casos cada, incluindo os
+     * prefixos e sufixos de comando.
+     */
+    static String[] utterances(int terms) {
+        String[] utterances = new String[SIZE];
+        int next = 0;
+        for (int i = 0; i < SIZE; i++) {
+            StringBuilder text = new StringBuilder(PREFIXES[i % PREFIXES.length]);
+            for (int t = 0; t < terms; t++) {
+                if (t > 0) {
+                    text.append(" mais ");
+                }
+                text.append(phrase(next++));
+            }
+            text.append(SUFFIXES[(i / PREFIXES.length) % SUFFIXES.length]);
+            utterances[i] = text.toString();
+        }
+        return utterances;
+    }
+
+    /** As frases de {@link #utterances(int)} depois de normalizeMathPhrase. */
+    static String[] normalized(int terms) {
+        String[] utterances = utterances(terms);
+        for (int i = 0; i < utterances.length; i++) {
+            utterances[i] = MXParserBridge.normalizeMathPhrase(utterances[i]);
+        }
+        return utterances;
+    }
+
+    /** Expressões da tela da calculadora correspondentes a {@link #normalized(int)}. */
+    static String[] expressions(int terms) {
+        String[] utterances = normalized(terms);
+        for (int i = 0; i < utterances.length; i++) {
+            utterances[i] = VoiceCommandProcessor.processVoiceCommand(utterances[i]);
+        }
+        return utterances;
+    }
+
+    private static String phrase(int index) {
+        int total = RECOGNITION_CASES.length + PROCESSOR_CASES.length;
+        int i = index % total;
+        return i < RECOGNITION_CASES.length
+                ? RECOGNITION_CASES[i]
+                : PROCESSOR_CASES[i - RECOGNITION_CASES.length];
+    }
+}
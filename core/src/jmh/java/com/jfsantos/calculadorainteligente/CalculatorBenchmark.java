@@ -0,0 +1,63 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Avaliação de expressões da tela, com {@code terms} casos de teste por
+ * expressão. {@link #calculate()} passa pela Calculator como o app (cache de
+ * compilação incluído, cache de resultados desligado); {@link #compileAndEvaluate()}
+ * mede a expressão ainda não vista.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorBenchmark {
+    @Param({"1", "4", "16"})
+    int terms;
+
+    private String[] expressions;
+    private Calculator calculator;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expressions = BenchmarkCorpus.expressions(terms);
+        // Capacidade 1 com um corpus maior que 1: toda chamada realmente avalia.
+        calculator = new Calculator(new ResultCache(1, LruCache.Eviction.LEAST_RECENTLY_USED));
+    }
+
+    private String nextExpression() {
+        String expression = expressions[next];
+        next = (next + 1) % expressions.length;
+        return expression;
+    }
+
+    @Benchmark
+    public String calculate() {
+        calculator.setExpression(nextExpression());
+        return calculator.calculate();
+    }
+
+    @Benchmark
+    public BigDecimal compileAndEvaluate() {
+        return CompiledExpression.compile(nextExpression())
+                .evaluate(Calculator.newCalculationContext());
+    }
+}
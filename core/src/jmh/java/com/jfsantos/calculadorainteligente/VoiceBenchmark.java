@@ -0,0 +1,64 @@
+package com.jfsantos.calculadorainteligente;
+
+import com.jfsantos.voicemath.MXParserBridge;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho da fala ao resultado, com {@code terms} casos de teste por frase:
+ * normalização, conversão em expressão e o cálculo completo pelo mXparser.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoiceBenchmark {
+    @Param({"1", "4", "16"})
+    int terms;
+
+    private String[] utterances;
+    private String[] normalized;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        utterances = BenchmarkCorpus.utterances(terms);
+        normalized = BenchmarkCorpus.normalized(terms);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % BenchmarkCorpus.SIZE;
+        return index;
+    }
+
+    @Benchmark
+    public String normalizeMathPhrase() {
+        return MXParserBridge.normalizeMathPhrase(utterances[nextIndex()]);
+    }
+
+    @Benchmark
+    public VoiceCommandProcessor.ProcessResult processVoiceCommandDetailed() {
+        return VoiceCommandProcessor.processVoiceCommandDetailed(normalized[nextIndex()]);
+    }
+
+    @Benchmark
+    public String calculateWithMXParser() {
+        return MXParserBridge.calculate(utterances[nextIndex()]);
+    }
+}
@@ -0,0 +1,63 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Avalia um arquivo inteiro pela linha de comando, sem Android:
+ *
+ * <pre>
+ * BatchCli [--expressoes] entrada [saida]
+ * </pre>
+ *
+ * Cada linha da entrada é uma frase falada (ou, com --expressoes, uma
+ * expressão da tela). Cada linha da saída tem a entrada, a expressão e o
+ * resultado separados por tabulação, na ordem da entrada. Sem arquivo de saída,
+ * escreve na saída padrão.
+ */
+public final class BatchCli {
+
+    private BatchCli() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        BatchEvaluator.Mode mode = BatchEvaluator.Mode.UTTERANCE;
+        int first = 0;
+        if (args.length > 0 && args[0].equals("--expressoes")) {
+            mode = BatchEvaluator.Mode.EXPRESSION;
+            first = 1;
+        }
+        if (args.length - first < 1 || args.length - first > 2) {
+            System.err.println("Uso: BatchCli [--expressoes] entrada [saida]");
+            System.exit(2);
+        }
+
+        BatchEvaluator evaluator = new BatchEvaluator(ForkJoinPool.commonPool(), mode);
+        try (MappedLineReader lines = new MappedLineReader(Paths.get(args[first]));
+             Writer out = args.length - first == 2
+                     ? Files.newBufferedWriter(Paths.get(args[first + 1]), StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            evaluator.evaluate(lines, result -> write(out, result));
+        }
+    }
+
+    private static void write(Writer out, BatchEvaluator.Result result) {
+        try {
+            out.write(result.getInput());
+            out.write('\t');
+            out.write(result.getExpression());
+            out.write('\t');
+            out.write(result.getResult());
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
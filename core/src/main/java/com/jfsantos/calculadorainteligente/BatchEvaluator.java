@@ -0,0 +1,148 @@
+package com.jfsantos.calculadorainteligente;
+
+import com.jfsantos.voicemath.MXParserBridge;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Avalia muitas frases ou expressões em paralelo em um {@link ForkJoinPool}.
+ *
+ * As linhas são agrupadas em lotes; no máximo {@code maxInFlight} lotes ficam
+ * pendentes ao mesmo tempo, então a memória usada não depende do tamanho da
+ * entrada. Os resultados são entregues na ordem da entrada, na thread que
+ * chamou {@link #evaluate}.
+ */
+public final class BatchEvaluator {
+    /** Como cada linha da entrada é interpretada. */
+    public enum Mode {
+        /** Frase falada: normalizada e convertida por VoiceCommandProcessor. */
+        UTTERANCE,
+        /** Expressão no formato da tela da calculadora. */
+        EXPRESSION
+    }
+
+    /** Resultado de uma linha. */
+    public static final class Result {
+        private final String input;
+        private final String expression;
+        private final String result;
+
+        Result(String input, String expression, String result) {
+            this.input = input;
+            this.expression = expression;
+            this.result = result;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        /** Expressão avaliada, ou vazio se a linha não virou expressão. */
+        public String getExpression() {
+            return expression;
+        }
+
+        /** Resultado formatado como na tela, ou a mensagem de erro. */
+        public String getResult() {
+            return result;
+        }
+    }
+
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final Mode mode;
+    private final int maxInFlight;
+    private final int batchSize;
+
+    public BatchEvaluator(ForkJoinPool pool, Mode mode) {
+        // Dois lotes por thread: enquanto um é entregue, o outro já está em andamento.
+        this(pool, mode, pool.getParallelism() * 2, DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchEvaluator(ForkJoinPool pool, Mode mode, int maxInFlight, int batchSize) {
+        if (maxInFlight <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Limites devem ser positivos");
+        }
+        this.pool = pool;
+        this.mode = mode;
+        this.maxInFlight = maxInFlight;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Avalia todas as linhas de {@code lines} e entrega cada resultado a
+     * {@code results}, na mesma ordem. Só volta depois da última entrega.
+     */
+    public void evaluate(Iterator<String> lines, Consumer<Result> results) {
+        ArrayDeque<ForkJoinTask<Result[]>> pending = new ArrayDeque<>(maxInFlight);
+        try {
+            while (lines.hasNext()) {
+                String[] batch = new String[batchSize];
+                int count = 0;
+                while (count < batchSize && lines.hasNext()) {
+                    batch[count++] = lines.next();
+                }
+                if (pending.size() == maxInFlight) {
+                    deliver(pending.removeFirst(), results);
+                }
+                pending.addLast(pool.submit(evaluateBatch(batch, count)));
+            }
+            while (!pending.isEmpty()) {
+                deliver(pending.removeFirst(), results);
+            }
+        } finally {
+            for (ForkJoinTask<Result[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Avalia uma única linha, na thread atual.
+     */
+    public Result evaluate(String line) {
+        String expression = line;
+        if (mode == Mode.UTTERANCE) {
+            VoiceCommandProcessor.ProcessResult parsed = VoiceCommandProcessor.processVoiceCommandDetailed(
+                    MXParserBridge.normalizeMathPhrase(line));
+            if (parsed.getCommand() != VoiceCommandProcessor.CommandType.NONE) {
+                return new Result(line, "", parsed.getCommand().name());
+            }
+            expression = parsed.getUiExpression();
+        }
+        if (expression.trim().isEmpty()) {
+            return new Result(line, "", "Expressão inválida");
+        }
+        try {
+            // Sem o cache da Calculator: as linhas raramente se repetem e o cache seria disputado.
+            BigDecimal value = CompiledExpression.compile(expression)
+                    .evaluate(Calculator.newCalculationContext());
+            return new Result(line, expression, Calculator.formatBigDecimal(value));
+        } catch (ArithmeticException | NumberFormatException e) {
+            String message = e.getMessage();
+            return new Result(line, expression, message == null ? "Erro ao calcular" : message);
+        }
+    }
+
+    private ForkJoinTask<Result[]> evaluateBatch(String[] batch, int count) {
+        return ForkJoinTask.adapt(() -> {
+            Result[] evaluated = new Result[count];
+            for (int i = 0; i < count; i++) {
+                evaluated[i] = evaluate(batch[i]);
+            }
+            return evaluated;
+        });
+    }
+
+    private static void deliver(ForkJoinTask<Result[]> task, Consumer<Result> results) {
+        for (Result result : task.join()) {
+            results.accept(result);
+        }
+    }
+}
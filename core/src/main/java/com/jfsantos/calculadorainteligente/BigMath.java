@@ -0,0 +1,266 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Funções transcendentes em BigDecimal com a precisão pedida pelo
+ * {@link MathContext}. Ângulos de sin, cos e tan são em graus, como na
+ * calculadora.
+ *
+ * As constantes π e ln 10 são calculadas uma vez por faixa de precisão
+ * (32, 64, 128, ... dígitos) e reaproveitadas por qualquer precisão menor.
+ */
+final class BigMath {
+    private static final int GUARD_DIGITS = 10;
+    private static final int FIRST_TIER = 32;
+    private static final int CONSTANT_CACHE_CAPACITY = 8;
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal HALF_TURN = BigDecimal.valueOf(180);
+    private static final BigDecimal FULL_TURN = BigDecimal.valueOf(360);
+    private static final BigDecimal RIGHT_ANGLE = BigDecimal.valueOf(90);
+    private static final BigDecimal HALF_RIGHT_ANGLE = BigDecimal.valueOf(45);
+
+    private static final LruCache<Integer, BigDecimal> piByTier = new LruCache<>(CONSTANT_CACHE_CAPACITY);
+    private static final LruCache<Integer, BigDecimal> ln10ByTier = new LruCache<>(CONSTANT_CACHE_CAPACITY);
+
+    private BigMath() {
+    }
+
+    static BigDecimal pi(MathContext mc) {
+        int tier = tier(mc.getPrecision());
+        BigDecimal pi = piByTier.get(tier);
+        if (pi == null) {
+            pi = computePi(new MathContext(tier, RoundingMode.HALF_EVEN));
+            piByTier.put(tier, pi);
+        }
+        return pi.round(mc);
+    }
+
+    static BigDecimal ln10(MathContext mc) {
+        int tier = tier(mc.getPrecision());
+        BigDecimal ln10 = ln10ByTier.get(tier);
+        if (ln10 == null) {
+            ln10 = lnNewton(BigDecimal.TEN, new MathContext(tier, RoundingMode.HALF_EVEN));
+            ln10ByTier.put(tier, ln10);
+        }
+        return ln10.round(mc);
+    }
+
+    /**
+     * Raiz quadrada pelo método de Newton, y' = (y + x / y) / 2, partindo do
+     * valor em double.
+     */
+    static BigDecimal sqrt(BigDecimal x, MathContext mc) throws ArithmeticException {
+        if (x.signum() < 0) {
+            throw new ArithmeticException("Expressão inválida");
+        }
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        MathContext work = guarded(mc);
+        // x = m * 10^(2k), com m na faixa de um double.
+        int half = Math.floorDiv(x.precision() - x.scale() - 1, 2);
+        BigDecimal y = new BigDecimal(Math.sqrt(x.movePointLeft(2 * half).doubleValue())).movePointRight(half);
+        for (int i = 0; i < 20; i++) {
+            BigDecimal next = y.add(x.divide(y, work)).divide(TWO, work);
+            BigDecimal change = next.subtract(y).abs();
+            y = next;
+            if (change.compareTo(BigDecimal.ONE.movePointLeft(work.getPrecision() - 1).multiply(y)) <= 0) {
+                break;
+            }
+        }
+        return y.round(mc);
+    }
+
+    static BigDecimal exp(BigDecimal x, MathContext mc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (x.signum() < 0) {
+            return BigDecimal.ONE.divide(exp(x.negate(), guarded(mc)), mc);
+        }
+
+        // exp(x) = exp(x / 2^k)^(2^k), com x / 2^k pequeno para a série convergir rápido.
+        int squarings = x.toBigInteger().bitLength() + 8;
+        MathContext work = new MathContext(mc.getPrecision() + squarings / 3 + GUARD_DIGITS,
+                RoundingMode.HALF_EVEN);
+        BigDecimal reduced = x.divide(new BigDecimal(BigInteger.ONE.shiftLeft(squarings)), work);
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(work.getPrecision() + 1);
+
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal term = BigDecimal.ONE;
+        for (int k = 1; ; k++) {
+            term = term.multiply(reduced, work).divide(BigDecimal.valueOf(k), work);
+            if (term.compareTo(epsilon) < 0) {
+                break;
+            }
+            sum = sum.add(term, work);
+        }
+        for (int i = 0; i < squarings; i++) {
+            sum = sum.multiply(sum, work);
+        }
+        return sum.round(mc);
+    }
+
+    static BigDecimal ln(BigDecimal x, MathContext mc) throws ArithmeticException {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("Expressão inválida");
+        }
+        // ln(x) = ln(m) + k * ln(10), com 1 <= m < 10.
+        int exponent10 = x.precision() - x.scale() - 1;
+        MathContext work = guarded(mc);
+        BigDecimal result = lnNewton(x.movePointLeft(exponent10), work);
+        if (exponent10 != 0) {
+            result = result.add(ln10(work).multiply(BigDecimal.valueOf(exponent10), work), work);
+        }
+        return result.round(mc);
+    }
+
+    static BigDecimal log10(BigDecimal x, MathContext mc) throws ArithmeticException {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("Expressão inválida");
+        }
+        // log10(x) = k + ln(m) / ln(10); potências de dez saem exatas.
+        int exponent10 = x.precision() - x.scale() - 1;
+        MathContext work = guarded(mc);
+        BigDecimal fraction = lnNewton(x.movePointLeft(exponent10), work).divide(ln10(work), work);
+        return fraction.add(BigDecimal.valueOf(exponent10), work).round(mc);
+    }
+
+    static BigDecimal sinDegrees(BigDecimal degrees, MathContext mc) {
+        // A redução em graus é exata: sin(x) = sin(x mod 360).
+        BigDecimal angle = degrees.remainder(FULL_TURN);
+        if (angle.signum() < 0) {
+            angle = angle.add(FULL_TURN);
+        }
+        boolean negative = false;
+        if (angle.compareTo(HALF_TURN) >= 0) {
+            angle = angle.subtract(HALF_TURN);
+            negative = true;
+        }
+        if (angle.compareTo(RIGHT_ANGLE) > 0) {
+            angle = HALF_TURN.subtract(angle);
+        }
+        MathContext work = guarded(mc);
+        BigDecimal result = angle.compareTo(HALF_RIGHT_ANGLE) > 0
+                ? cosSeries(toRadians(RIGHT_ANGLE.subtract(angle), work), work)
+                : sinSeries(toRadians(angle, work), work);
+        return (negative ? result.negate() : result).round(mc);
+    }
+
+    static BigDecimal cosDegrees(BigDecimal degrees, MathContext mc) {
+        return sinDegrees(degrees.add(RIGHT_ANGLE), mc);
+    }
+
+    static BigDecimal tanDegrees(BigDecimal degrees, MathContext mc) throws ArithmeticException {
+        MathContext work = guarded(mc);
+        BigDecimal cos = cosDegrees(degrees, work);
+        if (cos.signum() == 0) {
+            throw new ArithmeticException("Expressão inválida");
+        }
+        return sinDegrees(degrees, work).divide(cos, mc);
+    }
+
+    private static BigDecimal toRadians(BigDecimal degrees, MathContext mc) {
+        return degrees.multiply(pi(mc), mc).divide(HALF_TURN, mc);
+    }
+
+    /**
+     * Série de Taylor do seno, para |x| <= π/4.
+     */
+    private static BigDecimal sinSeries(BigDecimal x, MathContext mc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(mc.getPrecision() + 1).multiply(x.abs());
+        BigDecimal xSquared = x.multiply(x, mc);
+        BigDecimal term = x;
+        BigDecimal sum = x;
+        for (int k = 1; ; k++) {
+            term = term.multiply(xSquared, mc).divide(BigDecimal.valueOf((2L * k) * (2L * k + 1)), mc).negate();
+            if (term.abs().compareTo(epsilon) < 0) {
+                break;
+            }
+            sum = sum.add(term, mc);
+        }
+        return sum;
+    }
+
+    /**
+     * Série de Taylor do cosseno, para |x| <= π/4.
+     */
+    private static BigDecimal cosSeries(BigDecimal x, MathContext mc) {
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(mc.getPrecision() + 1);
+        BigDecimal xSquared = x.multiply(x, mc);
+        BigDecimal term = BigDecimal.ONE;
+        BigDecimal sum = BigDecimal.ONE;
+        for (int k = 1; ; k++) {
+            term = term.multiply(xSquared, mc).divide(BigDecimal.valueOf((2L * k - 1) * (2L * k)), mc).negate();
+            if (term.abs().compareTo(epsilon) < 0) {
+                break;
+            }
+            sum = sum.add(term, mc);
+        }
+        return sum;
+    }
+
+    /**
+     * Iteração de Halley sobre exp: y' = y + 2 (x - e^y) / (x + e^y).
+     * Parte do valor em double e triplica os dígitos corretos a cada passo.
+     */
+    private static BigDecimal lnNewton(BigDecimal x, MathContext mc) {
+        BigDecimal y = new BigDecimal(Math.log(x.doubleValue()));
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(mc.getPrecision());
+        for (int i = 0; i < 10; i++) {
+            BigDecimal ey = exp(y, mc);
+            BigDecimal correction = TWO.multiply(x.subtract(ey, mc), mc).divide(x.add(ey, mc), mc);
+            y = y.add(correction, mc);
+            if (correction.abs().compareTo(epsilon) < 0) {
+                break;
+            }
+        }
+        return y;
+    }
+
+    /**
+     * π pela fórmula de Machin: π = 16 atan(1/5) - 4 atan(1/239).
+     */
+    private static BigDecimal computePi(MathContext mc) {
+        MathContext work = guarded(mc);
+        BigDecimal pi = arctanInverse(5, work).multiply(BigDecimal.valueOf(16))
+                .subtract(arctanInverse(239, work).multiply(BigDecimal.valueOf(4)));
+        return pi.round(mc);
+    }
+
+    private static BigDecimal arctanInverse(int x, MathContext mc) {
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(mc.getPrecision() + 1);
+        BigDecimal xSquared = BigDecimal.valueOf((long) x * x);
+        BigDecimal power = BigDecimal.ONE.divide(BigDecimal.valueOf(x), mc);
+        BigDecimal sum = power;
+        for (int k = 1; ; k++) {
+            power = power.divide(xSquared, mc);
+            BigDecimal term = power.divide(BigDecimal.valueOf(2L * k + 1), mc);
+            if (term.compareTo(epsilon) < 0) {
+                break;
+            }
+            sum = (k & 1) != 0 ? sum.subtract(term, mc) : sum.add(term, mc);
+        }
+        return sum;
+    }
+
+    private static MathContext guarded(MathContext mc) {
+        return new MathContext(mc.getPrecision() + GUARD_DIGITS, RoundingMode.HALF_EVEN);
+    }
+
+    private static int tier(int precision) {
+        int tier = FIRST_TIER;
+        while (tier < precision) {
+            tier <<= 1;
+        }
+        return tier;
+    }
+}
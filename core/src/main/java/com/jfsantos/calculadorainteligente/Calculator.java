@@ -0,0 +1,591 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+public class Calculator {
+    /** Resultado parcial exibido quando a conta excede o orçamento da prévia. */
+    public static final String TOO_LARGE_RESULT = "Muito grande";
+
+    // A prévia roda na thread de avaliação e é cancelada pela tecla seguinte;
+    // só o custo a limita, para que uma conta lenta mas pequena não vire "Muito grande".
+    private static final long PREVIEW_COST_BUDGET = 2000000;
+    private static final long CALCULATION_COST_BUDGET = 100000000;
+    private static final long CALCULATION_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private static final int COMPILED_CACHE_CAPACITY = 64;
+    private static final LruCache<String, CompiledExpression> compiledExpressions =
+            new LruCache<>(COMPILED_CACHE_CAPACITY);
+    // Compartilhado pelas calculadoras da tela e da thread de avaliação.
+    private static final ResultCache sharedResults =
+            new ResultCache(ResultCache.DEFAULT_CAPACITY, LruCache.Eviction.LEAST_RECENTLY_USED);
+
+    private final IncrementalEvaluator incrementalEvaluator = new IncrementalEvaluator();
+    private final ResultCache results;
+    private ExpressionTokens tokens;
+    // Número em digitação; só vira token quando um operador ou parêntese o encerra.
+    private StringBuilder currentNumber;
+    // Valor exato de currentNumber quando ele veio de um resultado, ou null.
+    private BigDecimal currentValue;
+    // Se currentNumber é exibido separado do último token.
+    private boolean currentSpaced;
+    // Se currentNumber já tem vírgula decimal.
+    private boolean currentHasDecimal;
+    private boolean startNewNumber;
+    // Sobrevivem a clear(); só mudam por store, setResult e pelos comandos de memória.
+    private Registers registers = Registers.EMPTY;
+    // Modo exato da sessão: divisões em frações, sem arredondar (ver Rational).
+    private boolean exactMode;
+
+    public Calculator() {
+        this(sharedResults);
+    }
+
+    Calculator(ResultCache results) {
+        this.results = results;
+        clear();
+    }
+
+    public void appendDigit(String digit) {
+        if (startNewNumber) {
+            currentNumber = new StringBuilder();
+            currentHasDecimal = false;
+            startNewNumber = false;
+        }
+        currentNumber.append(digit);
+        currentValue = null;
+    }
+
+    public void appendDecimal() {
+        if (startNewNumber) {
+            currentNumber = new StringBuilder("0");
+            currentHasDecimal = false;
+            startNewNumber = false;
+        }
+        if (!currentHasDecimal) {
+            currentNumber.append(",");
+            currentHasDecimal = true;
+            currentValue = null;
+        }
+    }
+
+    public void appendOperator(String operator) {
+        if (currentNumber.length() > 0) {
+            commitCurrentNumber();
+            tokens.addText(operator, true);
+        } else if (!tokens.isEmpty()) {
+            String last = tokens.lastText();
+            if (last.equals("+") || last.equals("-") || last.equals("×") || last.equals("÷") || last.equals("%")) {
+                tokens.removeLast();
+            }
+            tokens.addText(operator, true);
+        }
+    }
+
+    public void appendParenthesis(String parenthesis) {
+        if (currentNumber.length() > 0) {
+            commitCurrentNumber();
+        }
+        tokens.addText(parenthesis, true);
+    }
+
+    public String getFullExpression() {
+        String expression = tokens.render();
+        if (currentNumber.length() == 0) {
+            return expression;
+        }
+        if (expression.isEmpty()) {
+            return currentNumber.toString().trim();
+        }
+        return (currentSpaced ? expression + " " + currentNumber : expression + currentNumber).trim();
+    }
+
+    public String evaluatePartial() {
+        return evaluatePartial(newPreviewContext());
+    }
+
+    /**
+     * Resultado parcial para a prévia; {@link #TOO_LARGE_RESULT} se a conta
+     * passar do orçamento e {@code null} se passar do prazo de {@code context},
+     * que não diz nada sobre o resultado.
+     */
+    String evaluatePartial(EvaluationContext context) {
+        String fullExpression = getFullExpression();
+        if (fullExpression.isEmpty()) return "0";
+
+        fullExpression = fullExpression.trim();
+        if (fullExpression.endsWith("+") || fullExpression.endsWith("-") || fullExpression.endsWith("−") ||
+            fullExpression.endsWith("×") || fullExpression.endsWith("÷") || fullExpression.endsWith("%") ||
+            fullExpression.endsWith("^")) {
+            fullExpression = fullExpression.substring(0, fullExpression.length()-1).trim();
+        }
+
+        if (fullExpression.isEmpty()) return "0";
+
+        try {
+            BigDecimal result;
+            if (exactMode) {
+                // Os pontos de retomada guardam valores em BigDecimal; no modo exato a prévia é recalculada.
+                String key = resultKey(fullExpression);
+                result = key == null ? null : results.get(key);
+                if (result == null) {
+                    result = compile(fullExpression).evaluateExact(context, registers);
+                    if (key != null) results.put(key, result);
+                }
+            } else {
+                // Sem o cache de resultados: montar a chave relê a expressão inteira, e os pontos de
+                // retomada já evitam refazer o prefixo depois de apagar e redigitar.
+                result = incrementalEvaluator.evaluate(fullExpression, context, registers);
+            }
+            return formatBigDecimal(result);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (ResultTooLargeException e) {
+            return TOO_LARGE_RESULT;
+        } catch (EvaluationTimeoutException e) {
+            return null;
+        } catch (Exception e) {
+            return "Erro";
+        }
+    }
+
+    public String getCurrentDisplay() {
+        if (currentNumber.length() == 0 && startNewNumber) {
+            return "0";
+        }
+        return currentNumber.length() > 0 ? currentNumber.toString() : "0";
+    }
+
+    public String getExpression() {
+        return tokens.render();
+    }
+
+    public void clear() {
+        tokens = new ExpressionTokens();
+        currentNumber = new StringBuilder();
+        currentValue = null;
+        currentSpaced = true;
+        currentHasDecimal = false;
+        startNewNumber = true;
+    }
+
+    /**
+     * Apaga o último caractere do número em digitação ou, se não houver, o
+     * último token. Um número que volte a ser o último token é reaberto para
+     * edição.
+     */
+    public void delete() {
+        if (currentNumber.length() > 0 && !startNewNumber) {
+            deleteLastChar();
+            return;
+        }
+
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        boolean lastIsNumber = currentNumber.length() == 0 && tokens.lastCode() == ExpressionLexer.NUMBER;
+        if (!lastIsNumber) {
+            tokens.removeLast();
+        }
+        if (currentNumber.length() == 0 && !tokens.isEmpty() && tokens.lastCode() == ExpressionLexer.NUMBER) {
+            currentNumber = new StringBuilder(tokens.lastText());
+            currentValue = tokens.lastValue();
+            currentSpaced = tokens.lastSpaced();
+            currentHasDecimal = hasDecimal(currentNumber);
+            tokens.removeLast();
+            if (lastIsNumber) {
+                deleteLastChar();
+            }
+        }
+        startNewNumber = false;
+    }
+
+    public void setExpression(String expr) {
+        tokens = new ExpressionTokens();
+        if (expr != null) {
+            tokens.addText(expr, false);
+        }
+    }
+
+    public void setCurrentNumber(String number) {
+        this.currentNumber = new StringBuilder(number);
+        this.currentValue = null;
+        this.currentHasDecimal = hasDecimal(currentNumber);
+        this.startNewNumber = false;
+    }
+
+    /**
+     * Recomeça a partir de um resultado, mantendo o valor exato em vez de
+     * lê-lo de volta do texto exibido. O resultado também vai para Ans.
+     */
+    public void setResult(BigDecimal value) {
+        registers = registers.with(Registers.ANSWER, value);
+        clear();
+        currentNumber.append(formatBigDecimal(value));
+        currentValue = value;
+        currentHasDecimal = hasDecimal(currentNumber);
+        startNewNumber = false;
+    }
+
+    public String calculate() throws ArithmeticException {
+        return calculate(newCalculationContext());
+    }
+
+    String calculate(EvaluationContext context) throws ArithmeticException {
+        return formatBigDecimal(calculateValue(context));
+    }
+
+    /**
+     * Resultado exato da expressão, antes de ser formatado para a tela.
+     */
+    BigDecimal calculateValue(EvaluationContext context) throws ArithmeticException {
+        String fullExpression = getFullExpression();
+
+        if (fullExpression.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+
+        try {
+            String key = resultKey(fullExpression);
+            BigDecimal result = key == null ? null : results.get(key);
+            if (result == null) {
+                CompiledExpression compiled = compile(fullExpression);
+                result = exactMode ? compiled.evaluateExact(context, registers) : compiled.evaluate(context, registers);
+                if (key != null) results.put(key, result);
+            }
+            return result;
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException(e.getMessage());
+        }
+    }
+
+    // A mesma expressão dá resultados diferentes nos dois modos.
+    private String resultKey(String expression) {
+        String key = ResultCache.key(expression);
+        return key == null || !exactMode ? key : "=" + key;
+    }
+
+    private static CompiledExpression compile(String expr) {
+        CompiledExpression compiled = compiledExpressions.get(expr);
+        if (compiled == null) {
+            compiled = CompiledExpression.compile(expr);
+            compiledExpressions.put(expr, compiled);
+        }
+        return compiled;
+    }
+
+    public String calculatePercent() {
+        if (currentNumber.length() > 0) {
+            try {
+                BigDecimal value = new BigDecimal(currentNumber.toString().replace(',', '.'));
+                BigDecimal result = value.divide(new BigDecimal("100"), 10, RoundingMode.HALF_UP);
+                return formatBigDecimal(result);
+            } catch (Exception e) {
+                return getCurrentDisplay();
+            }
+        }
+        return getCurrentDisplay();
+    }
+
+    static EvaluationContext newPreviewContext() {
+        return new EvaluationContext(PREVIEW_COST_BUDGET, EvaluationContext.NO_DEADLINE);
+    }
+
+    static EvaluationContext newCalculationContext() {
+        return new EvaluationContext(CALCULATION_COST_BUDGET, CALCULATION_TIMEOUT_NANOS);
+    }
+
+    static String formatBigDecimal(BigDecimal value) {
+        if (value == null) return "0";
+        String plainString = value.stripTrailingZeros().toPlainString();
+        return plainString.replace('.', ',');
+    }
+
+    public void appendSubExpression(String subExpr) {
+        if (subExpr == null) return;
+        String s = subExpr.trim();
+        if (s.isEmpty()) return;
+
+        if (currentNumber.length() > 0) {
+            commitCurrentNumber();
+        }
+
+        String[] parts = s.split("\\s+");
+        if (parts.length == 0) return;
+
+        String first = parts[0];
+        boolean firstIsOperator = first.length() == 1 && "+−×÷%".indexOf(first.charAt(0)) >= 0;
+        String inner;
+        if (firstIsOperator) {
+            if (parts.length == 1) return;
+            inner = String.join(" ", Arrays.copyOfRange(parts, 1, parts.length));
+            tokens.addText(first, true);
+        } else {
+            inner = String.join(" ", parts);
+        }
+        tokens.addText("(", true);
+        tokens.addText(inner, false);
+        tokens.addText(")", false);
+    }
+
+    public void appendFunction(String funcName, String inner) {
+        if (funcName == null || inner == null) return;
+        String f = funcName.trim();
+        String in = inner.trim();
+        if (f.isEmpty() || in.isEmpty()) return;
+        
+        // NÃO adiciona currentNumber à expressão porque ele já está em 'inner'
+        // Apenas limpa o currentNumber
+        currentNumber = new StringBuilder();
+        currentValue = null;
+        currentSpaced = true;
+        currentHasDecimal = false;
+        startNewNumber = true;
+
+        tokens.addText(f, true);
+        tokens.addText("(", false);
+        tokens.addText(in, false);
+        tokens.addText(")", false);
+    }
+
+    public void appendConstant(String value) {
+        if (value == null || value.isEmpty()) return;
+        String v = value.replace('.', ',');
+        if (startNewNumber) {
+            currentNumber = new StringBuilder();
+            currentHasDecimal = false;
+            startNewNumber = false;
+        }
+        currentNumber.append(v);
+        currentValue = null;
+        currentHasDecimal |= v.indexOf(',') >= 0;
+    }
+
+    /**
+     * Inclui o registrador {@code name} ("A", "M", "Ans") na expressão. Depois
+     * de um número ou de ) entra um × implícito, como em "2A".
+     */
+    public void appendRegister(String name) {
+        if (Registers.slot(name) < 0) {
+            throw new IllegalArgumentException("Registrador inválido");
+        }
+        if (currentNumber.length() > 0) {
+            commitCurrentNumber();
+        }
+        if (!tokens.isEmpty()) {
+            int last = tokens.lastCode();
+            if (last == ExpressionLexer.NUMBER || last == ExpressionLexer.REGISTER
+                    || last == ExpressionLexer.RIGHT_PARENTHESIS || last == ExpressionLexer.FACTORIAL) {
+                tokens.add(ExpressionLexer.MULTIPLY, "×", null, true);
+            }
+        }
+        tokens.add(ExpressionLexer.REGISTER, name, null, true);
+    }
+
+    /** Guarda {@code value} no registrador {@code name}. */
+    public void store(String name, BigDecimal value) {
+        int slot = Registers.slot(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Registrador inválido");
+        }
+        registers = registers.with(slot, value);
+    }
+
+    /** Valor do registrador {@code name}; zero se nunca foi atribuído. */
+    public BigDecimal recall(String name) {
+        int slot = Registers.slot(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Registrador inválido");
+        }
+        return registers.get(slot);
+    }
+
+    public Registers getRegisters() {
+        return registers;
+    }
+
+    /** Troca todos os registradores, como ao recriar a tela. */
+    public void restoreRegisters(Registers registers) {
+        this.registers = registers == null ? Registers.EMPTY : registers;
+    }
+
+    /**
+     * Liga ou desliga o modo exato: as contas são feitas em frações e só o
+     * resultado é convertido para decimal, então "1 ÷ 3 × 3" dá 1 em vez de
+     * 0,9999999999. Vale para esta calculadora até ser desligado.
+     */
+    public void setExactMode(boolean exactMode) {
+        this.exactMode = exactMode;
+    }
+
+    public boolean isExactMode() {
+        return exactMode;
+    }
+
+    /** M+: soma {@code value} à memória (registrador M). */
+    public void memoryAdd(BigDecimal value) {
+        registers = registers.with(Registers.MEMORY, registers.get(Registers.MEMORY).add(value));
+    }
+
+    /** M−: subtrai {@code value} da memória. */
+    public void memorySubtract(BigDecimal value) {
+        registers = registers.with(Registers.MEMORY, registers.get(Registers.MEMORY).subtract(value));
+    }
+
+    /** MC: zera a memória. */
+    public void memoryClear() {
+        registers = registers.with(Registers.MEMORY, null);
+    }
+
+    public void appendFactorial() {
+        if (currentNumber.length() > 0) {
+            commitCurrentNumber();
+            tokens.add(ExpressionLexer.FACTORIAL, "!", null, false);
+        } else if (!tokens.isEmpty()) {
+            tokens.add(ExpressionLexer.FACTORIAL, "!", null, false);
+        }
+    }
+
+    public String getCurrentNumberRaw() {
+        return currentNumber.toString();
+    }
+
+    /**
+     * Indica se a expressão termina em um operando e tem os parênteses
+     * balanceados. Usa o estado mantido a cada alteração, sem montar nem
+     * percorrer o texto.
+     */
+    public boolean hasCompleteExpression() {
+        return !tokens.isUnbalanced() && tokens.depth() == 0 && endsWithOperand();
+    }
+
+    /**
+     * Parênteses abertos e ainda não fechados.
+     */
+    public int getOpenParentheses() {
+        return tokens.depth();
+    }
+
+    /**
+     * Indica se o número em digitação já tem vírgula decimal.
+     */
+    public boolean hasDecimalPoint() {
+        return !startNewNumber && currentHasDecimal;
+    }
+
+    private boolean endsWithOperand() {
+        if (currentNumber.length() > 0) {
+            return ExpressionParser.endsWithOperand(currentNumber);
+        }
+        return !tokens.isEmpty() && ExpressionParser.endsWithOperand(tokens.lastText());
+    }
+
+    public boolean isReadyForNewNumber() {
+        return startNewNumber;
+    }
+
+    public void restoreState(String expressionValue, String currentNumberValue, boolean shouldStartNewNumber) {
+        setExpression(expressionValue);
+        currentNumber = new StringBuilder();
+        currentValue = null;
+        currentSpaced = true;
+        if (currentNumberValue != null && !currentNumberValue.isEmpty()) {
+            currentNumber.append(currentNumberValue);
+        }
+        currentHasDecimal = hasDecimal(currentNumber);
+        startNewNumber = shouldStartNewNumber;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(tokens.share(), currentNumber.toString(), currentValue, currentSpaced,
+                startNewNumber, getFullExpression(), hasCompleteExpression(), registers, exactMode);
+    }
+
+    public void restoreState(Snapshot snapshot) {
+        tokens = snapshot.tokens.share();
+        currentNumber = new StringBuilder(snapshot.currentNumber);
+        currentValue = snapshot.currentValue;
+        currentSpaced = snapshot.currentSpaced;
+        currentHasDecimal = hasDecimal(currentNumber);
+        startNewNumber = snapshot.startNewNumber;
+        registers = snapshot.registers;
+        exactMode = snapshot.exactMode;
+    }
+
+    private void commitCurrentNumber() {
+        if (currentValue != null) {
+            tokens.add(ExpressionLexer.NUMBER, currentNumber.toString(), currentValue, currentSpaced);
+        } else {
+            tokens.addText(currentNumber.toString(), currentSpaced);
+        }
+        currentNumber = new StringBuilder();
+        currentValue = null;
+        currentSpaced = true;
+        currentHasDecimal = false;
+        startNewNumber = true;
+    }
+
+    private void deleteLastChar() {
+        int last = currentNumber.length() - 1;
+        if (currentNumber.charAt(last) == ',') {
+            currentHasDecimal = false;
+        }
+        currentNumber.deleteCharAt(last);
+        currentValue = null;
+    }
+
+    private static boolean hasDecimal(CharSequence number) {
+        for (int i = 0; i < number.length(); i++) {
+            if (number.charAt(i) == ',') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cópia imutável do estado da calculadora, para ser avaliada em outra thread.
+     * Os tokens e os registradores são compartilhados com a calculadora de
+     * origem, sem cópia.
+     */
+    public static final class Snapshot {
+        private final ExpressionTokens tokens;
+        private final String currentNumber;
+        private final BigDecimal currentValue;
+        private final boolean currentSpaced;
+        private final boolean startNewNumber;
+        private final String fullExpression;
+        private final boolean complete;
+        private final Registers registers;
+        private final boolean exactMode;
+
+        private Snapshot(ExpressionTokens tokens, String currentNumber, BigDecimal currentValue,
+                         boolean currentSpaced, boolean startNewNumber, String fullExpression,
+                         boolean complete, Registers registers, boolean exactMode) {
+            this.tokens = tokens;
+            this.currentNumber = currentNumber;
+            this.currentValue = currentValue;
+            this.currentSpaced = currentSpaced;
+            this.startNewNumber = startNewNumber;
+            this.fullExpression = fullExpression;
+            this.complete = complete;
+            this.registers = registers;
+            this.exactMode = exactMode;
+        }
+
+        public String getFullExpression() {
+            return fullExpression;
+        }
+
+        /**
+         * Mesmo que {@link Calculator#hasCompleteExpression()} no momento da cópia.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Expressão da calculadora já analisada e convertida para notação pós-fixa.
+ * A análise do texto acontece uma única vez em {@link #compile(String)}; o
+ * objeto resultante é imutável e pode ser reavaliado sem repetir o trabalho.
+ *
+ * O programa é um int[] em que cada instrução guarda o tipo nos bits altos e o
+ * código do operador ({@link ExpressionLexer}) no byte baixo; os números ficam
+ * em um array à parte, na ordem em que são empilhados.
+ *
+ * Números que cabem em um long são avaliados como mantissa e escala
+ * ({@link ScaledDecimal}); um valor só vira BigDecimal quando a conta estoura
+ * o long ou usa ^, funções ou fatorial. O resultado é o mesmo, com a mesma
+ * escala, que a avaliação toda em BigDecimal daria.
+ *
+ * {@link #evaluateExact} avalia o mesmo programa em frações ({@link Rational}),
+ * sem arredondar divisões; só o resultado é convertido para decimal.
+ *
+ * Registradores ({@link Registers}) viram instruções com o índice do slot,
+ * lido a cada avaliação; mudar um registrador não exige recompilar.
+ *
+ * Expressões compiladas com {@link #compileFunction(String)} podem conter a
+ * variável x e são amostradas em double por {@link #sample}.
+ */
+final class CompiledExpression {
+    private static final int PUSH = 0;
+    private static final int BINARY = 1;
+    private static final int FUNCTION = 2;
+    private static final int FACTORIAL = 3;
+    private static final int VARIABLE = 4;
+    private static final int REGISTER = 5;
+    private static final int KIND_SHIFT = 8;
+    private static final int CODE_MASK = 0xFF;
+    // Escala de constante que não cabe em long.
+    private static final int NOT_SCALED = -1;
+
+    private static final int NO_FAILURE = 0;
+    private static final int ARITHMETIC_FAILURE = 1;
+    private static final int NUMBER_FORMAT_FAILURE = 2;
+
+    private final int[] program;
+    private final int length;
+    private final BigDecimal[] constants;
+    private final long[] constantMantissas;
+    private final int[] constantScales;
+    private final int maxDepth;
+    private final boolean complete;
+    private final int failureKind;
+    private final String failureMessage;
+    // Constantes em double para sample(). Montadas no construtor: final garante
+    // que as threads do FunctionTable vejam o array já preenchido.
+    private final double[] doubleConstants;
+
+    private CompiledExpression(int[] program, int length, BigDecimal[] constants, long[] constantMantissas,
+                               int[] constantScales, int maxDepth, boolean complete,
+                               int failureKind, String failureMessage) {
+        this.program = program;
+        this.length = length;
+        this.constants = constants;
+        this.constantMantissas = constantMantissas;
+        this.constantScales = constantScales;
+        this.maxDepth = maxDepth;
+        this.complete = complete;
+        this.failureKind = failureKind;
+        this.failureMessage = failureMessage;
+        this.doubleConstants = toDoubles(constants);
+    }
+
+    /**
+     * Converte o texto exibido na calculadora em um programa pós-fixo.
+     * Erros de sintaxe não são lançados aqui: ficam registrados e são
+     * reproduzidos em {@link #evaluate()} no mesmo ponto em que a avaliação
+     * direta do texto falharia.
+     */
+    static CompiledExpression compile(String source) {
+        return compile(source, false);
+    }
+
+    /**
+     * Como {@link #compile(String)}, aceitando a variável x. O resultado só
+     * pode ser avaliado por {@link #sample}.
+     */
+    static CompiledExpression compileFunction(String source) {
+        return compile(source, true);
+    }
+
+    private static CompiledExpression compile(String source, boolean variables) {
+        ExpressionLexer.Tokens tokens = ExpressionLexer.tokenize(source, variables);
+        ProgramBuilder out = new ProgramBuilder(tokens.count());
+        // Cada token empilha no máximo um operador, então a pilha cabe em count posições.
+        int[] operators = new int[tokens.count()];
+        int top = 0;
+        int openParentheses = 0;
+        boolean unbalanced = false;
+        try {
+            for (int i = 0; i < tokens.count(); i++) {
+                int code = tokens.code(i);
+                if (code == ExpressionLexer.NUMBER) {
+                    out.push(ExpressionLexer.parseNumber(source, tokens.start(i), tokens.end(i)));
+                } else if (code == ExpressionLexer.VARIABLE) {
+                    out.variable();
+                } else if (code == ExpressionLexer.REGISTER) {
+                    out.register(Registers.slot(source, tokens.start(i), tokens.end(i)));
+                } else if (code == ExpressionLexer.LEFT_PARENTHESIS) {
+                    operators[top++] = code;
+                    openParentheses++;
+                } else if (code == ExpressionLexer.RIGHT_PARENTHESIS) {
+                    while (top > 0 && operators[top - 1] != ExpressionLexer.LEFT_PARENTHESIS) {
+                        out.binary(operators[--top]);
+                    }
+                    if (top > 0) top--;
+                    if (top > 0 && ExpressionLexer.isFunction(operators[top - 1])) {
+                        out.function(operators[--top]);
+                    }
+                    openParentheses--;
+                    if (openParentheses < 0) unbalanced = true;
+                } else if (ExpressionLexer.isBinaryOperator(code)) {
+                    while (top > 0 && ExpressionLexer.hasPrecedence(code, operators[top - 1])) {
+                        out.binary(operators[--top]);
+                    }
+                    operators[top++] = code;
+                } else if (ExpressionLexer.isFunction(code)) {
+                    operators[top++] = code;
+                } else if (code == ExpressionLexer.FACTORIAL) {
+                    out.factorial();
+                }
+            }
+            while (top > 0) {
+                int op = operators[--top];
+                if (ExpressionLexer.isFunction(op)) {
+                    out.function(op);
+                } else {
+                    out.binary(op);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return out.build(ExpressionParser.isComplete(source), NUMBER_FORMAT_FAILURE, e.getMessage());
+        } catch (ArithmeticException e) {
+            return out.build(ExpressionParser.isComplete(source), ARITHMETIC_FAILURE, e.getMessage());
+        }
+        boolean complete = !unbalanced && openParentheses == 0 && ExpressionParser.endsWithOperand(source);
+        if (variables && out.depth != 1) {
+            // Sem a compatibilidade da Calculator: "2 x" não vira silenciosamente "x".
+            return out.build(complete, ARITHMETIC_FAILURE, "Expressão inválida");
+        }
+        return out.build(complete, NO_FAILURE, null);
+    }
+
+    BigDecimal evaluate() throws ArithmeticException {
+        return evaluate(EvaluationContext.unbounded());
+    }
+
+    BigDecimal evaluate(EvaluationContext context) throws ArithmeticException {
+        return evaluate(context, Registers.EMPTY);
+    }
+
+    /**
+     * Avalia o programa cobrando de {@code context} o custo de cada instrução
+     * antes de executá-la. Os registradores são lidos de {@code registers}.
+     */
+    BigDecimal evaluate(EvaluationContext context, Registers registers) throws ArithmeticException {
+        // Posição i da pilha: big[i], ou mantissas[i] e scales[i] quando big[i] é null.
+        BigDecimal[] big = new BigDecimal[maxDepth];
+        long[] mantissas = new long[maxDepth];
+        int[] scales = new int[maxDepth];
+        int size = 0;
+        int constant = 0;
+        for (int pc = 0; pc < length; pc++) {
+            int instruction = program[pc];
+            int code = instruction & CODE_MASK;
+            switch (instruction >>> KIND_SHIFT) {
+                case PUSH:
+                    context.charge(1);
+                    if (constantScales[constant] == NOT_SCALED) {
+                        big[size] = constants[constant];
+                    } else {
+                        mantissas[size] = constantMantissas[constant];
+                        scales[size] = constantScales[constant];
+                    }
+                    constant++;
+                    size++;
+                    break;
+                case REGISTER: {
+                    context.charge(1);
+                    BigDecimal value = registers.get(code);
+                    if (ScaledDecimal.fits(value)) {
+                        mantissas[size] = ScaledDecimal.mantissa(value);
+                        scales[size] = value.scale();
+                    } else {
+                        big[size] = value;
+                    }
+                    size++;
+                    break;
+                }
+                case BINARY: {
+                    size--;
+                    if (big[size] == null && big[size - 1] == null
+                            && applyScaled(code, mantissas, scales, size - 1, context)) {
+                        break;
+                    }
+                    BigDecimal b = value(big, mantissas, scales, size);
+                    BigDecimal a = value(big, mantissas, scales, size - 1);
+                    context.charge(Operations.cost(code, b, a));
+                    big[size - 1] = Operations.applyOperation(code, b, a);
+                    big[size] = null;
+                    break;
+                }
+                case FUNCTION: {
+                    BigDecimal a = value(big, mantissas, scales, size - 1);
+                    context.charge(Operations.functionCost(a));
+                    big[size - 1] = Operations.applyFunction(code, a);
+                    break;
+                }
+                case FACTORIAL: {
+                    BigDecimal a = value(big, mantissas, scales, size - 1);
+                    context.charge(Operations.factorialCost(a));
+                    big[size - 1] = Operations.applyFactorial(a);
+                    break;
+                }
+                case VARIABLE:
+                    throw new ArithmeticException("Expressão inválida");
+            }
+        }
+        if (failureKind == NUMBER_FORMAT_FAILURE) {
+            throw new NumberFormatException(failureMessage);
+        }
+        if (failureKind == ARITHMETIC_FAILURE) {
+            throw new ArithmeticException(failureMessage);
+        }
+        return size == 0 ? BigDecimal.ZERO : value(big, mantissas, scales, size - 1);
+    }
+
+    /**
+     * Como {@link #evaluate(EvaluationContext, Registers)}, mas em frações
+     * exatas: "1 ÷ 3 × 3" dá 1. ^ com expoente não inteiro, funções e fatorial
+     * são calculados em BigDecimal a partir da fração.
+     */
+    BigDecimal evaluateExact(EvaluationContext context, Registers registers) throws ArithmeticException {
+        Rational[] stack = new Rational[maxDepth];
+        int size = 0;
+        int constant = 0;
+        for (int pc = 0; pc < length; pc++) {
+            int instruction = program[pc];
+            int code = instruction & CODE_MASK;
+            switch (instruction >>> KIND_SHIFT) {
+                case PUSH:
+                    context.charge(1);
+                    stack[size++] = constantScales[constant] == NOT_SCALED
+                            ? Rational.valueOf(constants[constant])
+                            : Rational.valueOf(constantMantissas[constant], constantScales[constant]);
+                    constant++;
+                    break;
+                case REGISTER:
+                    context.charge(1);
+                    stack[size++] = Rational.valueOf(registers.get(code));
+                    break;
+                case BINARY: {
+                    size--;
+                    Rational a = stack[size - 1];
+                    Rational b = stack[size];
+                    if (code == ExpressionLexer.POWER) {
+                        context.charge(Rational.powerCost(a, b));
+                    } else {
+                        context.charge(Rational.cost(a, b));
+                    }
+                    Rational result = Rational.apply(code, a, b);
+                    if (result == null) {
+                        BigDecimal bigA = a.toBigDecimal(Operations.FUNCTION_CONTEXT);
+                        BigDecimal bigB = b.toBigDecimal(Operations.FUNCTION_CONTEXT);
+                        context.charge(Operations.cost(code, bigB, bigA));
+                        result = Rational.valueOf(Operations.applyOperation(code, bigB, bigA));
+                    }
+                    stack[size - 1] = result;
+                    stack[size] = null;
+                    break;
+                }
+                case FUNCTION: {
+                    BigDecimal a = stack[size - 1].toBigDecimal(Operations.FUNCTION_CONTEXT);
+                    context.charge(Operations.functionCost(a));
+                    stack[size - 1] = Rational.valueOf(Operations.applyFunction(code, a));
+                    break;
+                }
+                case FACTORIAL: {
+                    BigDecimal a = stack[size - 1].toBigDecimal(Operations.FUNCTION_CONTEXT);
+                    context.charge(Operations.factorialCost(a));
+                    stack[size - 1] = Rational.valueOf(Operations.applyFactorial(a));
+                    break;
+                }
+                case VARIABLE:
+                    throw new ArithmeticException("Expressão inválida");
+            }
+        }
+        if (failureKind == NUMBER_FORMAT_FAILURE) {
+            throw new NumberFormatException(failureMessage);
+        }
+        if (failureKind == ARITHMETIC_FAILURE) {
+            throw new ArithmeticException(failureMessage);
+        }
+        return size == 0 ? BigDecimal.ZERO : stack[size - 1].toBigDecimal();
+    }
+
+    /**
+     * Avalia o programa em double com x = {@code start + i × step}, para i de
+     * {@code from} até {@code to} (exclusive), e guarda o valor em {@code out[i]}.
+     * Pontos em que a expressão não está definida (divisão por zero, raiz de
+     * negativo, estouro) ficam NaN, assim como expressões com registradores.
+     * Funções trigonométricas usam graus, como em {@link #evaluate(EvaluationContext)}.
+     */
+    void sample(double start, double step, int from, int to, double[] out) {
+        double[] constants = doubleConstants;
+        double[] stack = new double[Math.max(maxDepth, 1)];
+        for (int i = from; i < to; i++) {
+            out[i] = failureKind == NO_FAILURE ? evaluate(start + i * step, constants, stack) : Double.NaN;
+        }
+    }
+
+    private double evaluate(double x, double[] constants, double[] stack) {
+        int size = 0;
+        int constant = 0;
+        for (int pc = 0; pc < length; pc++) {
+            int instruction = program[pc];
+            int code = instruction & CODE_MASK;
+            switch (instruction >>> KIND_SHIFT) {
+                case PUSH:
+                    stack[size++] = constants[constant++];
+                    break;
+                case VARIABLE:
+                    stack[size++] = x;
+                    break;
+                case REGISTER:
+                    return Double.NaN;
+                case BINARY:
+                    size--;
+                    stack[size - 1] = applyDouble(code, stack[size - 1], stack[size]);
+                    break;
+                case FUNCTION:
+                    stack[size - 1] = functionDouble(code, stack[size - 1]);
+                    break;
+                case FACTORIAL:
+                    stack[size - 1] = factorialDouble(stack[size - 1]);
+                    break;
+            }
+        }
+        double result = size == 0 ? 0 : stack[size - 1];
+        return Double.isInfinite(result) ? Double.NaN : result;
+    }
+
+    private static double[] toDoubles(BigDecimal[] constants) {
+        double[] converted = new double[constants.length];
+        for (int i = 0; i < converted.length && constants[i] != null; i++) {
+            converted[i] = constants[i].doubleValue();
+        }
+        return converted;
+    }
+
+    private static double applyDouble(int operator, double a, double b) {
+        switch (operator) {
+            case ExpressionLexer.ADD:
+                return a + b;
+            case ExpressionLexer.SUBTRACT:
+                return a - b;
+            case ExpressionLexer.MULTIPLY:
+                return a * b;
+            case ExpressionLexer.DIVIDE:
+                return b == 0 ? Double.NaN : a / b;
+            case ExpressionLexer.PERCENT:
+                return a * (b / 100);
+            case ExpressionLexer.POWER:
+                return Math.pow(a, b);
+            default:
+                return 0;
+        }
+    }
+
+    private static double functionDouble(int function, double a) {
+        switch (function) {
+            case ExpressionLexer.SIN:
+                return sinDegrees(a);
+            case ExpressionLexer.COS:
+                return sinDegrees(a + 90);
+            case ExpressionLexer.TAN: {
+                double cos = sinDegrees(a + 90);
+                return cos == 0 ? Double.NaN : sinDegrees(a) / cos;
+            }
+            case ExpressionLexer.SQRT:
+                return Math.sqrt(a);
+            case ExpressionLexer.LOG:
+                return a <= 0 ? Double.NaN : Math.log10(a);
+            case ExpressionLexer.LN:
+                return a <= 0 ? Double.NaN : Math.log(a);
+            default:
+                return a;
+        }
+    }
+
+    // Múltiplos de 90° dão valores exatos, como em BigMath.
+    private static double sinDegrees(double degrees) {
+        double reduced = degrees % 360;
+        if (reduced % 90 == 0) {
+            int quadrant = (int) ((reduced + 360) % 360 / 90);
+            return quadrant == 1 ? 1 : quadrant == 3 ? -1 : 0;
+        }
+        return Math.sin(Math.toRadians(reduced));
+    }
+
+    private static double factorialDouble(double a) {
+        // 170! é o maior fatorial que cabe em um double.
+        if (Double.isNaN(a) || a < 0 && a == Math.rint(a) || a > 170) {
+            return Double.NaN;
+        }
+        if (a == Math.rint(a)) {
+            double product = 1;
+            for (int i = 2; i <= a; i++) {
+                product *= i;
+            }
+            return product;
+        }
+        try {
+            return Operations.applyFactorial(BigDecimal.valueOf(a)).doubleValue();
+        } catch (ArithmeticException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Aplica o operador às posições {@code a} e {@code a + 1} da pilha em long,
+     * guardando o resultado em {@code a}. Devolve false, sem alterar a pilha,
+     * quando a operação precisa ser feita em BigDecimal.
+     */
+    private static boolean applyScaled(int operator, long[] mantissas, int[] scales, int a,
+                                       EvaluationContext context) {
+        long am = mantissas[a];
+        int as = scales[a];
+        long bm = mantissas[a + 1];
+        int bs = scales[a + 1];
+        long result;
+        int scale;
+        try {
+            switch (operator) {
+                case ExpressionLexer.ADD:
+                    result = ScaledDecimal.add(am, as, bm, bs);
+                    scale = ScaledDecimal.addScale(as, bs);
+                    break;
+                case ExpressionLexer.SUBTRACT:
+                    result = ScaledDecimal.subtract(am, as, bm, bs);
+                    scale = ScaledDecimal.addScale(as, bs);
+                    break;
+                case ExpressionLexer.MULTIPLY:
+                    result = ScaledDecimal.multiply(am, bm);
+                    scale = ScaledDecimal.multiplyScale(as, bs);
+                    break;
+                case ExpressionLexer.DIVIDE:
+                    if (bm == 0) return false;
+                    result = ScaledDecimal.divide(am, as, bm, bs);
+                    scale = Operations.DIVISION_SCALE;
+                    break;
+                case ExpressionLexer.PERCENT:
+                    result = ScaledDecimal.percent(am, bm, bs);
+                    scale = ScaledDecimal.percentScale(as);
+                    break;
+                default:
+                    return false;
+            }
+        } catch (ArithmeticException overflow) {
+            return false;
+        }
+        context.charge(1);
+        mantissas[a] = result;
+        scales[a] = scale;
+        return true;
+    }
+
+    private static BigDecimal value(BigDecimal[] big, long[] mantissas, int[] scales, int index) {
+        return big[index] != null ? big[index] : BigDecimal.valueOf(mantissas[index], scales[index]);
+    }
+
+    /**
+     * Indica se o texto de origem termina em um operando e tem os parênteses
+     * balanceados, ou seja, se já faz sentido mostrar um resultado parcial.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Acumula as instruções acompanhando a altura da pilha, de modo que
+     * operandos faltantes sejam detectados já na compilação. Cada token gera
+     * no máximo uma instrução, então os arrays são alocados uma vez só.
+     */
+    private static final class ProgramBuilder {
+        private final int[] program;
+        private final BigDecimal[] constants;
+        private final long[] constantMantissas;
+        private final int[] constantScales;
+        private int length = 0;
+        private int constantCount = 0;
+        private int depth = 0;
+        private int maxDepth = 0;
+
+        ProgramBuilder(int tokenCount) {
+            program = new int[tokenCount];
+            constants = new BigDecimal[tokenCount];
+            constantMantissas = new long[tokenCount];
+            constantScales = new int[tokenCount];
+        }
+
+        void push(BigDecimal value) {
+            program[length++] = PUSH << KIND_SHIFT;
+            if (ScaledDecimal.fits(value)) {
+                constantMantissas[constantCount] = ScaledDecimal.mantissa(value);
+                constantScales[constantCount] = value.scale();
+            } else {
+                constantScales[constantCount] = NOT_SCALED;
+            }
+            constants[constantCount++] = value;
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        void binary(int operator) {
+            if (depth < 2) throw new ArithmeticException("Expressão inválida");
+            program[length++] = BINARY << KIND_SHIFT | operator;
+            depth--;
+        }
+
+        void function(int function) {
+            if (depth < 1) throw new ArithmeticException("Expressão inválida");
+            program[length++] = FUNCTION << KIND_SHIFT | function;
+        }
+
+        void variable() {
+            program[length++] = VARIABLE << KIND_SHIFT;
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        void register(int slot) {
+            program[length++] = REGISTER << KIND_SHIFT | slot;
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        void factorial() {
+            if (depth < 1) throw new ArithmeticException("Expressão inválida");
+            program[length++] = FACTORIAL << KIND_SHIFT;
+        }
+
+        CompiledExpression build(boolean complete, int failureKind, String failureMessage) {
+            return new CompiledExpression(program, length, constants, constantMantissas, constantScales,
+                    maxDepth, complete, failureKind, failureMessage);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.mariuszgromada.math.mxparser.Expression;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Compara o motor da Calculator com o mXparser em expressões aleatórias bem
+ * formadas, geradas por formato ({@link Shape}). Cada expressão é escrita nas
+ * duas sintaxes (a da tela e a do mXparser) e avaliada pelos dois motores, em
+ * paralelo; o relatório traz, por formato, as divergências e o tempo médio de
+ * cada motor, incluindo a análise da expressão.
+ *
+ * <pre>
+ * EngineDifferential [expressoesPorFormato] [semente]
+ * </pre>
+ *
+ * O % fica de fora: na tela ele é "a × b / 100", no mXparser é um sufixo.
+ */
+public final class EngineDifferential {
+    /** Formato das expressões geradas. */
+    enum Shape {
+        /** Só + e −. */
+        SUM,
+        /** Só × e ÷. */
+        PRODUCT,
+        /** + − × ÷ com precedência misturada. */
+        MIXED,
+        /** Como MIXED, com potências de expoente pequeno. */
+        POWER,
+        /** Parênteses aninhados até quatro níveis. */
+        NESTED,
+        /** Raiz quadrada e fatorial. */
+        FUNCTIONS
+    }
+
+    /** Uma expressão nas duas sintaxes. */
+    static final class Case {
+        final Shape shape;
+        final String display;
+        final String mxparser;
+
+        Case(Shape shape, String display, String mxparser) {
+            this.shape = shape;
+            this.display = display;
+            this.mxparser = mxparser;
+        }
+    }
+
+    // A Calculator arredonda cada divisão em DIVISION_SCALE casas; o mXparser usa double.
+    private static final double TOLERANCE = 1e-6;
+    private static final int MAX_EXAMPLES = 5;
+    private static final int DEFAULT_CASES_PER_SHAPE = 20000;
+    private static final long DEFAULT_SEED = 42;
+
+    private static final String[] ADDITIVE = {"+", "−"};
+    private static final String[] MULTIPLICATIVE = {"×", "÷"};
+    private static final String[] ARITHMETIC = {"+", "−", "×", "÷"};
+
+    private EngineDifferential() {
+    }
+
+    public static void main(String[] args) {
+        int casesPerShape = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CASES_PER_SHAPE;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Report report = run(casesPerShape, seed, ForkJoinPool.commonPool());
+        System.out.print(report.format());
+        if (report.mismatches() > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Gera e avalia {@code casesPerShape} expressões de cada formato em
+     * {@code pool}. A expressão i depende só de {@code seed} e de i, então uma
+     * divergência pode ser reproduzida.
+     */
+    static Report run(int casesPerShape, long seed, ForkJoinPool pool) {
+        Shape[] shapes = Shape.values();
+        return pool.submit(() -> IntStream.range(0, casesPerShape * shapes.length)
+                .parallel()
+                .mapToObj(i -> generate(shapes[i % shapes.length], new Random(seed * 31 + i)))
+                .collect(Report::new, Report::add, Report::merge)).join();
+    }
+
+    static Case generate(Shape shape, Random random) {
+        StringBuilder display = new StringBuilder();
+        StringBuilder mxparser = new StringBuilder();
+        switch (shape) {
+            case SUM:
+                chain(display, mxparser, random, ADDITIVE, 1 + random.nextInt(8), 0, false);
+                break;
+            case PRODUCT:
+                chain(display, mxparser, random, MULTIPLICATIVE, 1 + random.nextInt(6), 0, false);
+                break;
+            case MIXED:
+                chain(display, mxparser, random, ARITHMETIC, 1 + random.nextInt(8), 0, false);
+                break;
+            case POWER:
+                chain(display, mxparser, random, ARITHMETIC, 1 + random.nextInt(5), 0, true);
+                break;
+            case NESTED:
+                chain(display, mxparser, random, ARITHMETIC, 2 + random.nextInt(4), 4, false);
+                break;
+            case FUNCTIONS:
+                functionChain(display, mxparser, random);
+                break;
+        }
+        return new Case(shape, display.toString(), mxparser.toString());
+    }
+
+    private static void chain(StringBuilder display, StringBuilder mxparser, Random random,
+                              String[] operators, int terms, int depth, boolean powers) {
+        for (int t = 0; t < terms; t++) {
+            if (t > 0) {
+                String operator = operators[random.nextInt(operators.length)];
+                display.append(' ').append(operator).append(' ');
+                mxparser.append(mxparserOperator(operator));
+            }
+            if (depth > 0 && random.nextInt(3) == 0) {
+                display.append('(');
+                mxparser.append('(');
+                chain(display, mxparser, random, operators, 1 + random.nextInt(4), depth - 1, powers);
+                display.append(')');
+                mxparser.append(')');
+            } else if (powers && random.nextInt(3) == 0) {
+                integer(display, mxparser, random.nextInt(13));
+                int exponent = random.nextInt(4);
+                display.append(" ^ ").append(exponent);
+                mxparser.append('^').append(exponent);
+            } else {
+                operand(display, mxparser, random);
+            }
+        }
+    }
+
+    private static void functionChain(StringBuilder display, StringBuilder mxparser, Random random) {
+        int terms = 1 + random.nextInt(4);
+        for (int t = 0; t < terms; t++) {
+            if (t > 0) {
+                String operator = ARITHMETIC[random.nextInt(ARITHMETIC.length)];
+                display.append(' ').append(operator).append(' ');
+                mxparser.append(mxparserOperator(operator));
+            }
+            if (random.nextBoolean()) {
+                display.append("√(");
+                mxparser.append("sqrt(");
+                chain(display, mxparser, random, ARITHMETIC, 1 + random.nextInt(3), 1, false);
+                display.append(')');
+                mxparser.append(')');
+            } else {
+                integer(display, mxparser, random.nextInt(11));
+                display.append('!');
+                mxparser.append('!');
+            }
+        }
+    }
+
+    private static void operand(StringBuilder display, StringBuilder mxparser, Random random) {
+        boolean negative = random.nextInt(8) == 0;
+        int whole = random.nextInt(100);
+        int fraction = random.nextInt(4) == 0 ? random.nextInt(100) : -1;
+        String digits = fraction < 0 ? Integer.toString(whole) : whole + "." + (fraction < 10 ? "0" : "") + fraction;
+        if (negative) {
+            display.append('−').append(digits.replace('.', ','));
+            mxparser.append("(-").append(digits).append(')');
+        } else {
+            display.append(digits.replace('.', ','));
+            mxparser.append(digits);
+        }
+    }
+
+    private static void integer(StringBuilder display, StringBuilder mxparser, int value) {
+        display.append(value);
+        mxparser.append(value);
+    }
+
+    private static String mxparserOperator(String operator) {
+        switch (operator) {
+            case "−":
+                return "-";
+            case "×":
+                return "*";
+            case "÷":
+                return "/";
+            default:
+                return operator;
+        }
+    }
+
+    /**
+     * Indica se os dois motores concordam: ambos falham ou ambos dão o mesmo
+     * valor, a menos de {@link #TOLERANCE} relativo.
+     */
+    static boolean agree(BigDecimal calculator, double mxparser) {
+        boolean mxparserFailed = Double.isNaN(mxparser) || Double.isInfinite(mxparser);
+        if (calculator == null || mxparserFailed) {
+            return calculator == null && mxparserFailed;
+        }
+        double value = calculator.doubleValue();
+        return Math.abs(value - mxparser) <= TOLERANCE * Math.max(1, Math.abs(mxparser));
+    }
+
+    /** Contadores por formato; combináveis entre threads. */
+    static final class Report {
+        private final int[] cases = new int[Shape.values().length];
+        private final int[] mismatches = new int[Shape.values().length];
+        private final long[] calculatorNanos = new long[Shape.values().length];
+        private final long[] mxparserNanos = new long[Shape.values().length];
+        private final List<String> examples = new ArrayList<>();
+
+        void add(Case c) {
+            long start = System.nanoTime();
+            BigDecimal calculator;
+            try {
+                calculator = CompiledExpression.compile(c.display).evaluate(Calculator.newCalculationContext());
+            } catch (ArithmeticException | NumberFormatException e) {
+                calculator = null;
+            }
+            long middle = System.nanoTime();
+            double mxparser = new Expression(c.mxparser).calculate();
+            long end = System.nanoTime();
+
+            int shape = c.shape.ordinal();
+            cases[shape]++;
+            calculatorNanos[shape] += middle - start;
+            mxparserNanos[shape] += end - middle;
+            if (!agree(calculator, mxparser)) {
+                mismatches[shape]++;
+                if (examples.size() < MAX_EXAMPLES) {
+                    examples.add(c.shape + ": " + c.display + " = "
+                            + (calculator == null ? "erro" : Calculator.formatBigDecimal(calculator))
+                            + " | " + c.mxparser + " = " + mxparser);
+                }
+            }
+        }
+
+        void merge(Report other) {
+            for (int i = 0; i < cases.length; i++) {
+                cases[i] += other.cases[i];
+                mismatches[i] += other.mismatches[i];
+                calculatorNanos[i] += other.calculatorNanos[i];
+                mxparserNanos[i] += other.mxparserNanos[i];
+            }
+            for (String example : other.examples) {
+                if (examples.size() < MAX_EXAMPLES) {
+                    examples.add(example);
+                }
+            }
+        }
+
+        int cases(Shape shape) {
+            return cases[shape.ordinal()];
+        }
+
+        int mismatches(Shape shape) {
+            return mismatches[shape.ordinal()];
+        }
+
+        int mismatches() {
+            int total = 0;
+            for (int count : mismatches) {
+                total += count;
+            }
+            return total;
+        }
+
+        List<String> examples() {
+            return examples;
+        }
+
+        String format() {
+            StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+                    "%-10s %9s %11s %16s %16s%n", "formato", "casos", "divergem", "calculator ns", "mxparser ns"));
+            for (Shape shape : Shape.values()) {
+                int i = shape.ordinal();
+                int n = Math.max(cases[i], 1);
+                out.append(String.format(Locale.ROOT, "%-10s %9d %11d %16d %16d%n", shape, cases[i],
+                        mismatches[i], calculatorNanos[i] / n, mxparserNanos[i] / n));
+            }
+            for (String example : examples) {
+                out.append(example).append('\n');
+            }
+            return out.toString();
+        }
+    }
+}
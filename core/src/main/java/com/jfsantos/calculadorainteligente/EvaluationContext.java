@@ -0,0 +1,74 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Limites de uma avaliação: um orçamento de custo, um prazo e um sinal de
+ * cancelamento. Os avaliadores chamam {@link #charge(long)} entre um passo e
+ * outro, antes de executar cada operação, de modo que uma avaliação cara é
+ * interrompida antes de começar em vez de travar quem a chamou.
+ *
+ * O custo é medido em {@link Operations#cost unidades de custo}; o prazo é
+ * conferido a cada cobrança.
+ */
+final class EvaluationContext {
+    static final long NO_DEADLINE = 0;
+
+    private final long costBudget;
+    private final long deadlineNanos;
+    private long spent;
+    private boolean exhausted;
+    private volatile boolean cancelled;
+
+    /**
+     * @param costBudget custo máximo da avaliação
+     * @param timeoutNanos tempo máximo a partir de agora, ou {@link #NO_DEADLINE}
+     */
+    EvaluationContext(long costBudget, long timeoutNanos) {
+        this.costBudget = costBudget;
+        this.deadlineNanos = timeoutNanos == NO_DEADLINE ? NO_DEADLINE : System.nanoTime() + timeoutNanos;
+    }
+
+    static EvaluationContext unbounded() {
+        return new EvaluationContext(Long.MAX_VALUE, NO_DEADLINE);
+    }
+
+    /**
+     * Registra o custo do próximo passo. Lança {@link ResultTooLargeException}
+     * se o orçamento estourar, {@link EvaluationTimeoutException} se o prazo
+     * passar e {@link CancellationException} se a avaliação foi cancelada.
+     */
+    void charge(long cost) {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (cost > costBudget - spent) {
+            exhausted = true;
+            throw new ResultTooLargeException();
+        }
+        if (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos > 0) {
+            exhausted = true;
+            throw new EvaluationTimeoutException();
+        }
+        spent += cost;
+    }
+
+    /**
+     * Pode ser chamado de outra thread; a avaliação para na próxima cobrança.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Indica se a avaliação foi interrompida por este contexto, e não pela
+     * própria expressão. Nesse caso a falha não deve ser guardada em cache.
+     */
+    boolean isExhausted() {
+        return exhausted;
+    }
+}
@@ -0,0 +1,139 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Avalia a calculadora fora da thread principal, uma requisição por vez.
+ *
+ * Cada requisição leva um {@link Calculator.Snapshot} imutável. Uma requisição
+ * nova cancela a que estiver em andamento, e o resultado só é entregue em
+ * {@code resultExecutor} se nenhuma outra requisição tiver chegado depois
+ * (a mais recente vence).
+ */
+public final class EvaluationPipeline {
+    public interface PreviewListener {
+        /**
+         * @param partialResult resultado parcial, ou {@code null} se a expressão
+         *                      ainda não estiver completa ou a prévia passar
+         *                      do prazo
+         */
+        void onPreview(Calculator.Snapshot snapshot, String partialResult);
+    }
+
+    public interface ResultListener {
+        /**
+         * @param value resultado exato, para continuar a conta sem reler o texto
+         */
+        void onResult(Calculator.Snapshot snapshot, String result, BigDecimal value);
+
+        void onError(Calculator.Snapshot snapshot, Exception error);
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "calculator-evaluation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Executor resultExecutor;
+    // Usada só pela thread de avaliação; mantém os pontos de retomada entre prévias.
+    private final Calculator calculator = new Calculator();
+
+    private long generation;
+    private EvaluationContext running;
+
+    public EvaluationPipeline(Executor resultExecutor) {
+        this.resultExecutor = resultExecutor;
+    }
+
+    public void preview(Calculator.Snapshot snapshot, PreviewListener listener) {
+        long id = supersede();
+        worker.execute(() -> {
+            EvaluationContext context = begin(id, Calculator.newPreviewContext());
+            if (context == null) {
+                return;
+            }
+            try {
+                calculator.restoreState(snapshot);
+                String partialResult = snapshot.isComplete()
+                        ? calculator.evaluatePartial(context)
+                        : null;
+                deliver(id, () -> listener.onPreview(snapshot, partialResult));
+            } catch (CancellationException ignored) {
+                // Substituída por uma requisição mais nova.
+            } finally {
+                end(context);
+            }
+        });
+    }
+
+    public void calculate(Calculator.Snapshot snapshot, ResultListener listener) {
+        long id = supersede();
+        worker.execute(() -> {
+            EvaluationContext context = begin(id, Calculator.newCalculationContext());
+            if (context == null) {
+                return;
+            }
+            try {
+                calculator.restoreState(snapshot);
+                BigDecimal value = calculator.calculateValue(context);
+                String result = Calculator.formatBigDecimal(value);
+                deliver(id, () -> listener.onResult(snapshot, result, value));
+            } catch (CancellationException ignored) {
+                // Substituída por uma requisição mais nova.
+            } catch (Exception e) {
+                deliver(id, () -> listener.onError(snapshot, e));
+            } finally {
+                end(context);
+            }
+        });
+    }
+
+    /**
+     * Descarta a requisição pendente sem criar outra.
+     */
+    public void cancel() {
+        supersede();
+    }
+
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private synchronized long supersede() {
+        if (running != null) {
+            running.cancel();
+        }
+        return ++generation;
+    }
+
+    private synchronized EvaluationContext begin(long id, EvaluationContext context) {
+        if (id != generation) {
+            return null;
+        }
+        running = context;
+        return context;
+    }
+
+    private synchronized void end(EvaluationContext context) {
+        if (running == context) {
+            running = null;
+        }
+    }
+
+    private synchronized boolean isCurrent(long id) {
+        return id == generation;
+    }
+
+    private void deliver(long id, Runnable action) {
+        resultExecutor.execute(() -> {
+            if (isCurrent(id)) {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package com.jfsantos.calculadorainteligente;
+
+/**
+ * Lançada quando a avaliação passa do prazo de um {@link EvaluationContext}.
+ * Diferente de {@link ResultTooLargeException}: a conta pode ser pequena e só
+ * ter demorado, por exemplo na primeira vez que uma função é usada.
+ */
+final class EvaluationTimeoutException extends ArithmeticException {
+    private static final long serialVersionUID = 1L;
+
+    EvaluationTimeoutException() {
+        super("A conta demorou demais");
+    }
+}
@@ -0,0 +1,259 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Analisador léxico do texto exibido na calculadora. Lê os símbolos da tela
+ * (×, ÷, −, vírgula decimal) diretamente, sem passes de substituição, e
+ * representa cada token por um código inteiro.
+ */
+final class ExpressionLexer {
+    static final int NUMBER = 0;
+    static final int LEFT_PARENTHESIS = 1;
+    static final int RIGHT_PARENTHESIS = 2;
+    static final int FACTORIAL = 3;
+    /** Palavra ou caractere sem significado; não altera o estado da análise. */
+    static final int IGNORED = 4;
+
+    static final int ADD = 5;
+    static final int SUBTRACT = 6;
+    static final int MULTIPLY = 7;
+    static final int DIVIDE = 8;
+    static final int PERCENT = 9;
+    static final int POWER = 10;
+
+    static final int SIN = 11;
+    static final int COS = 12;
+    static final int TAN = 13;
+    static final int SQRT = 14;
+    static final int LOG = 15;
+    static final int LN = 16;
+
+    /** A variável x de uma tabela de função; só existe em {@link #tokenize(String, boolean)}. */
+    static final int VARIABLE = 17;
+    /** Registrador ({@link Registers}): uma letra maiúscula ou "Ans". */
+    static final int REGISTER = 18;
+
+    private static final int TOKEN_WIDTH = 3;
+
+    private ExpressionLexer() {
+    }
+
+    /**
+     * Tokens de um texto inteiro, em um único int[]: código, início e fim de
+     * cada token. Tokens {@link #IGNORED} não são incluídos.
+     */
+    static final class Tokens {
+        private final int[] data;
+        private final int count;
+
+        private Tokens(int[] data, int count) {
+            this.data = data;
+            this.count = count;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int code(int index) {
+            return data[index * TOKEN_WIDTH];
+        }
+
+        int start(int index) {
+            return data[index * TOKEN_WIDTH + 1];
+        }
+
+        int end(int index) {
+            return data[index * TOKEN_WIDTH + 2];
+        }
+    }
+
+    static Tokens tokenize(String source) {
+        return tokenize(source, false);
+    }
+
+    /**
+     * Como {@link #tokenize(String)}; com {@code variables}, a palavra "x" vira
+     * {@link #VARIABLE} em vez de ser ignorada.
+     */
+    static Tokens tokenize(String source, boolean variables) {
+        // Cada token ocupa ao menos um caractere, então o tamanho do texto é um limite seguro.
+        int[] data = new int[Math.max(source.length(), 1) * TOKEN_WIDTH];
+        int count = 0;
+        boolean afterOperator = true;
+        int i = skipWhitespace(source, 0);
+        while (i < source.length()) {
+            long token = scan(source, i, afterOperator);
+            int code = code(token);
+            int end = end(token);
+            if (variables && code == IGNORED && end == i + 1 && source.charAt(i) == 'x') {
+                code = VARIABLE;
+            }
+            if (code != IGNORED) {
+                data[count * TOKEN_WIDTH] = code;
+                data[count * TOKEN_WIDTH + 1] = i;
+                data[count * TOKEN_WIDTH + 2] = end;
+                count++;
+                afterOperator = leavesOperatorContext(code, afterOperator);
+            }
+            i = skipWhitespace(source, end);
+        }
+        return new Tokens(data, count);
+    }
+
+    static int skipWhitespace(String source, int index) {
+        while (index < source.length() && Character.isWhitespace(source.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Lê o token que começa em {@code start}. Um − logo após um operador (ou no
+     * início) faz parte do número seguinte. Devolve o código e o fim do token
+     * empacotados em um long; use {@link #code(long)} e {@link #end(long)}.
+     */
+    static long scan(String source, int start, boolean afterOperator) {
+        char c = source.charAt(start);
+        switch (c) {
+            case '(':
+                return pack(LEFT_PARENTHESIS, start + 1);
+            case ')':
+                return pack(RIGHT_PARENTHESIS, start + 1);
+            case '!':
+                return pack(FACTORIAL, start + 1);
+            case '√':
+                return pack(SQRT, start + 1);
+            case '-':
+            case '−':
+                if (afterOperator) {
+                    return pack(NUMBER, skipNumber(source, start + 1));
+                }
+                return pack(SUBTRACT, start + 1);
+            case '+':
+                return pack(ADD, start + 1);
+            case '*':
+            case '×':
+                return pack(MULTIPLY, start + 1);
+            case '/':
+            case '÷':
+                return pack(DIVIDE, start + 1);
+            case '%':
+                return pack(PERCENT, start + 1);
+            case '^':
+                return pack(POWER, start + 1);
+        }
+        if (isNumberChar(c)) {
+            return pack(NUMBER, skipNumber(source, start));
+        }
+        if (Character.isLetter(c)) {
+            int end = start + 1;
+            while (end < source.length() && Character.isLetter(source.charAt(end))) {
+                end++;
+            }
+            return pack(function(source, start, end), end);
+        }
+        return pack(IGNORED, start + 1);
+    }
+
+    static int code(long token) {
+        return (int) token;
+    }
+
+    static int end(long token) {
+        return (int) (token >>> 32);
+    }
+
+    /**
+     * Valor do token numérico entre {@code start} e {@code end}, convertendo
+     * vírgula e − para o formato do BigDecimal sem criar Strings intermediárias.
+     */
+    static BigDecimal parseNumber(String source, int start, int end) {
+        char[] digits = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            digits[i - start] = c == ',' ? '.' : c == '−' ? '-' : c;
+        }
+        return new BigDecimal(digits, 0, digits.length);
+    }
+
+    /**
+     * Indica se, depois do token {@code code}, um − volta a ser sinal de número.
+     */
+    static boolean leavesOperatorContext(int code, boolean afterOperator) {
+        if (code == LEFT_PARENTHESIS || isBinaryOperator(code) || isFunction(code)) {
+            return true;
+        }
+        if (code == NUMBER || code == VARIABLE || code == REGISTER || code == RIGHT_PARENTHESIS) {
+            return false;
+        }
+        return afterOperator;
+    }
+
+    static boolean isBinaryOperator(int code) {
+        return code >= ADD && code <= POWER;
+    }
+
+    static boolean isFunction(int code) {
+        return code >= SIN && code <= LN;
+    }
+
+    static int precedence(int code) {
+        switch (code) {
+            case POWER:
+                return 3;
+            case MULTIPLY:
+            case DIVIDE:
+            case PERCENT:
+                return 2;
+            case ADD:
+            case SUBTRACT:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Indica se o operador {@code top}, no alto da pilha, deve ser aplicado
+     * antes de empilhar {@code incoming}.
+     */
+    static boolean hasPrecedence(int incoming, int top) {
+        if (top == LEFT_PARENTHESIS) return false;
+        int p1 = precedence(incoming);
+        int p2 = precedence(top);
+        if (p2 > p1) return true;
+        return p2 == p1 && incoming != POWER;
+    }
+
+    private static int function(String source, int start, int end) {
+        if (is(source, start, end, "sin")) return SIN;
+        if (is(source, start, end, "cos")) return COS;
+        if (is(source, start, end, "tan")) return TAN;
+        if (is(source, start, end, "sqrt")) return SQRT;
+        if (is(source, start, end, "log")) return LOG;
+        if (is(source, start, end, "ln")) return LN;
+        if (Registers.slot(source, start, end) >= 0) return REGISTER;
+        return IGNORED;
+    }
+
+    private static boolean is(String source, int start, int end, String word) {
+        return end - start == word.length() && source.regionMatches(start, word, 0, word.length());
+    }
+
+    private static int skipNumber(String source, int index) {
+        while (index < source.length() && isNumberChar(source.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isNumberChar(char c) {
+        return Character.isDigit(c) || c == '.' || c == ',';
+    }
+
+    private static long pack(int code, int end) {
+        return ((long) end << 32) | code;
+    }
+}
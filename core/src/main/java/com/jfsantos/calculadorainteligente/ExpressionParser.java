@@ -0,0 +1,162 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Shunting-yard que consome o texto da calculadora um token por vez.
+ * Cada passo devolve um {@link State} imutável, de modo que quem chama pode
+ * guardar pontos de retomada entre tokens e continuar a análise a partir deles.
+ */
+final class ExpressionParser {
+    static final State INITIAL = new State(PersistentStack.<Integer>empty(), true, 0, false, 0);
+
+    private ExpressionParser() {
+    }
+
+    /**
+     * Recebe as operações na ordem em que devem ser executadas (notação pós-fixa).
+     * Operadores e funções chegam como códigos de {@link ExpressionLexer}.
+     */
+    interface Sink {
+        void push(BigDecimal value);
+
+        void register(int slot);
+
+        void binary(int operator);
+
+        void function(int function);
+
+        void factorial();
+    }
+
+    static final class State {
+        final PersistentStack<Integer> operators;
+        final boolean lastTokenWasOperator;
+        final int openParentheses;
+        final boolean unbalanced;
+        final int end;
+
+        State(PersistentStack<Integer> operators, boolean lastTokenWasOperator,
+              int openParentheses, boolean unbalanced, int end) {
+            this.operators = operators;
+            this.lastTokenWasOperator = lastTokenWasOperator;
+            this.openParentheses = openParentheses;
+            this.unbalanced = unbalanced;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Consome o próximo token a partir de {@code state.end}. Devolve {@code null}
+     * quando só resta espaço em branco.
+     */
+    static State next(State state, String source, Sink out) {
+        int start = ExpressionLexer.skipWhitespace(source, state.end);
+        if (start >= source.length()) {
+            return null;
+        }
+
+        long token = ExpressionLexer.scan(source, start, state.lastTokenWasOperator);
+        int code = ExpressionLexer.code(token);
+        int end = ExpressionLexer.end(token);
+        PersistentStack<Integer> operators = state.operators;
+        int openParentheses = state.openParentheses;
+        boolean unbalanced = state.unbalanced;
+
+        if (code == ExpressionLexer.NUMBER) {
+            out.push(ExpressionLexer.parseNumber(source, start, end));
+        } else if (code == ExpressionLexer.REGISTER) {
+            out.register(Registers.slot(source, start, end));
+        } else if (code == ExpressionLexer.LEFT_PARENTHESIS) {
+            operators = operators.push(code);
+            openParentheses++;
+        } else if (code == ExpressionLexer.RIGHT_PARENTHESIS) {
+            while (!operators.isEmpty() && operators.peek() != ExpressionLexer.LEFT_PARENTHESIS) {
+                out.binary(operators.peek());
+                operators = operators.pop();
+            }
+            if (!operators.isEmpty()) operators = operators.pop();
+            if (!operators.isEmpty() && ExpressionLexer.isFunction(operators.peek())) {
+                out.function(operators.peek());
+                operators = operators.pop();
+            }
+            openParentheses--;
+            if (openParentheses < 0) unbalanced = true;
+        } else if (ExpressionLexer.isBinaryOperator(code)) {
+            while (!operators.isEmpty() && ExpressionLexer.hasPrecedence(code, operators.peek())) {
+                out.binary(operators.peek());
+                operators = operators.pop();
+            }
+            operators = operators.push(code);
+        } else if (ExpressionLexer.isFunction(code)) {
+            operators = operators.push(code);
+        } else if (code == ExpressionLexer.FACTORIAL) {
+            out.factorial();
+        }
+
+        boolean lastTokenWasOperator = ExpressionLexer.leavesOperatorContext(code, state.lastTokenWasOperator);
+        return new State(operators, lastTokenWasOperator, openParentheses, unbalanced, end);
+    }
+
+    /**
+     * Descarrega os operadores pendentes ao fim do texto.
+     */
+    static void finish(State state, Sink out) {
+        PersistentStack<Integer> operators = state.operators;
+        while (!operators.isEmpty()) {
+            int op = operators.peek();
+            operators = operators.pop();
+            if (ExpressionLexer.isFunction(op)) {
+                out.function(op);
+            } else {
+                out.binary(op);
+            }
+        }
+    }
+
+    /**
+     * Indica se o texto termina em um operando e tem os parênteses balanceados,
+     * ou seja, se já faz sentido mostrar um resultado parcial. {@code state} deve
+     * ser o estado após consumir todo o texto.
+     */
+    static boolean isComplete(State state, String source) {
+        if (state.unbalanced || state.openParentheses != 0) {
+            return false;
+        }
+        return endsWithOperand(source);
+    }
+
+    /**
+     * Mesma verificação de {@link #isComplete(State, String)}, percorrendo o texto
+     * inteiro. Usada quando a análise foi interrompida por um erro antes do fim.
+     */
+    static boolean isComplete(String source) {
+        int balance = 0;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '(') {
+                balance++;
+            } else if (c == ')') {
+                balance--;
+                if (balance < 0) {
+                    return false;
+                }
+            }
+        }
+        return balance == 0 && endsWithOperand(source);
+    }
+
+    static boolean endsWithOperand(CharSequence source) {
+        int i = source.length() - 1;
+        while (i >= 0 && source.charAt(i) <= ' ') {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        char lastChar = source.charAt(i);
+        return !(lastChar == '+' || lastChar == '-' || lastChar == '−' || lastChar == '×'
+                || lastChar == '÷' || lastChar == '%' || lastChar == '^'
+                || lastChar == ',' || lastChar == '.');
+    }
+}
@@ -0,0 +1,183 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Lista de tokens da expressão da calculadora. Cada token guarda o código de
+ * {@link ExpressionLexer}, o texto exibido, o valor (para números) e se vem
+ * separado do anterior por um espaço. O texto da tela só é montado quando
+ * pedido e fica guardado até a próxima alteração. A profundidade de
+ * parênteses também é guardada por token, então saber se a expressão está
+ * balanceada não exige percorrê-la.
+ *
+ * Os tokens formam uma lista encadeada do último para o primeiro, e um nó
+ * nunca muda depois de criado. Incluir e remover o último token custa O(1),
+ * e {@link #share()} devolve em O(1) uma cópia que divide os nós com esta:
+ * como ninguém sobrescreve um nó, nenhuma das duas precisa copiar nada depois.
+ */
+final class ExpressionTokens {
+    private Node last;
+    private int size;
+    private String rendered;
+
+    ExpressionTokens() {
+        rendered = "";
+    }
+
+    private ExpressionTokens(ExpressionTokens source) {
+        last = source.last;
+        size = source.size;
+        rendered = source.rendered;
+    }
+
+    ExpressionTokens share() {
+        return new ExpressionTokens(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int lastCode() {
+        return last.code;
+    }
+
+    BigDecimal lastValue() {
+        return last.value;
+    }
+
+    /**
+     * Parênteses abertos e ainda não fechados.
+     */
+    int depth() {
+        return size == 0 ? 0 : last.depth;
+    }
+
+    /**
+     * Indica se algum ) apareceu sem um ( correspondente antes dele.
+     */
+    boolean isUnbalanced() {
+        return size > 0 && last.unbalanced;
+    }
+
+    void add(int code, String text, BigDecimal value, boolean spacedBefore) {
+        int depth = depth();
+        if (code == ExpressionLexer.LEFT_PARENTHESIS) {
+            depth++;
+        } else if (code == ExpressionLexer.RIGHT_PARENTHESIS) {
+            depth--;
+        }
+        last = new Node(last, code, text, value, spacedBefore, depth, isUnbalanced() || depth < 0);
+        size++;
+        rendered = null;
+    }
+
+    /**
+     * Separa {@code source} em tokens e os inclui no fim. O primeiro token recebe
+     * {@code spacedBefore}; os demais mantêm os espaços do texto. Números que não
+     * puderem ser lidos ficam sem valor, e o erro aparece na avaliação.
+     */
+    void addText(String source, boolean spacedBefore) {
+        boolean afterOperator = size == 0
+                || ExpressionLexer.leavesOperatorContext(lastCode(), true);
+        boolean space = spacedBefore;
+        int i = 0;
+        while (i < source.length()) {
+            int start = ExpressionLexer.skipWhitespace(source, i);
+            if (start >= source.length()) {
+                break;
+            }
+            if (start > i) {
+                space = true;
+            }
+            long token = ExpressionLexer.scan(source, start, afterOperator);
+            int code = ExpressionLexer.code(token);
+            int end = ExpressionLexer.end(token);
+            BigDecimal value = code == ExpressionLexer.NUMBER ? parse(source, start, end) : null;
+            add(code, source.substring(start, end), value, space);
+            if (code != ExpressionLexer.IGNORED) {
+                afterOperator = ExpressionLexer.leavesOperatorContext(code, afterOperator);
+            }
+            space = false;
+            i = end;
+        }
+    }
+
+    void removeLast() {
+        last = last.previous;
+        size--;
+        rendered = null;
+    }
+
+    String lastText() {
+        return last.text;
+    }
+
+    boolean lastSpaced() {
+        return last.spaced;
+    }
+
+    void clear() {
+        last = null;
+        size = 0;
+        rendered = "";
+    }
+
+    /**
+     * Texto da expressão, com um espaço entre os tokens que foram incluídos
+     * separados.
+     */
+    String render() {
+        if (rendered == null) {
+            Node[] nodes = new Node[size];
+            Node node = last;
+            for (int i = size - 1; i >= 0; i--) {
+                nodes[i] = node;
+                node = node.previous;
+            }
+            StringBuilder out = new StringBuilder(size * 3);
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && nodes[i].spaced) {
+                    out.append(' ');
+                }
+                out.append(nodes[i].text);
+            }
+            rendered = out.toString();
+        }
+        return rendered;
+    }
+
+    private static BigDecimal parse(String source, int start, int end) {
+        try {
+            return ExpressionLexer.parseNumber(source, start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class Node {
+        final Node previous;
+        final int code;
+        final String text;
+        final BigDecimal value;
+        final boolean spaced;
+        // Parênteses abertos depois deste token e se algum ) ficou sem par até aqui.
+        final int depth;
+        final boolean unbalanced;
+
+        Node(Node previous, int code, String text, BigDecimal value, boolean spaced,
+             int depth, boolean unbalanced) {
+            this.previous = previous;
+            this.code = code;
+            this.text = text;
+            this.value = value;
+            this.spaced = spaced;
+            this.depth = depth;
+            this.unbalanced = unbalanced;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fatorial para o operador !.
+ *
+ * Inteiros usam uma árvore de produtos balanceada sobre BigInteger e os
+ * resultados recentes ficam em cache. Valores não inteiros usam a função Gama,
+ * x! = Γ(x + 1), calculada pela série de Stirling com precisão limitada.
+ * Assim como na potenciação, o tamanho do resultado é estimado antes e valores
+ * que não caberiam no visor são recusados.
+ */
+final class FactorialEngine {
+    private static final int CACHE_CAPACITY = 32;
+    private static final int LEAF_SIZE = 8;
+    private static final double LN10 = Math.log(10);
+
+    private static final LruCache<Integer, BigInteger> factorials = new LruCache<>(CACHE_CAPACITY);
+    // B(2), B(4), ... como frações exatas {numerador, denominador}.
+    private static final List<BigInteger[]> bernoulli = new ArrayList<>();
+
+    private FactorialEngine() {
+    }
+
+    static BigDecimal factorial(BigDecimal x) throws ArithmeticException {
+        if (!PowerEngine.isIntegral(x)) {
+            return gamma(x.add(BigDecimal.ONE));
+        }
+        if (x.signum() < 0) {
+            throw new ArithmeticException("Expressão inválida");
+        }
+        if (log10Factorial(x.doubleValue()) > PowerEngine.MAX_RESULT_DIGITS) {
+            throw new ResultTooLargeException();
+        }
+        return new BigDecimal(factorial(x.intValueExact()));
+    }
+
+    /**
+     * Custo estimado de {@link #factorial(BigDecimal)}, no mesmo modelo de
+     * {@link PowerEngine#cost}.
+     */
+    static long cost(BigDecimal x) {
+        if (!PowerEngine.isIntegral(x)) {
+            return Operations.SERIES_COST;
+        }
+        double digits = log10Factorial(x.doubleValue());
+        if (x.signum() < 0 || digits > PowerEngine.MAX_RESULT_DIGITS) {
+            return 1;
+        }
+        long words = (long) (digits / 9) + 1;
+        return words * words;
+    }
+
+    static BigInteger factorial(int n) {
+        if (n < 2) {
+            return BigInteger.ONE;
+        }
+        BigInteger result = factorials.get(n);
+        if (result == null) {
+            result = product(2, n);
+            factorials.put(n, result);
+        }
+        return result;
+    }
+
+    /**
+     * Produto de from..to (inclusive), dividido ao meio para que as
+     * multiplicações grandes sejam entre números de tamanho parecido.
+     */
+    private static BigInteger product(int from, int to) {
+        if (to - from < LEAF_SIZE) {
+            BigInteger result = BigInteger.valueOf(from);
+            for (int k = from + 1; k <= to; k++) {
+                result = result.multiply(BigInteger.valueOf(k));
+            }
+            return result;
+        }
+        int middle = (from + to) >>> 1;
+        return product(from, middle).multiply(product(middle + 1, to));
+    }
+
+    private static BigDecimal gamma(BigDecimal z) {
+        double magnitude = log10AbsGamma(z.doubleValue());
+        if (magnitude > PowerEngine.MAX_RESULT_DIGITS) {
+            throw new ResultTooLargeException();
+        }
+        if (magnitude < -(Operations.DIVISION_SCALE + 2)) {
+            return BigDecimal.ZERO;
+        }
+
+        MathContext mc = PowerEngine.workingContext(magnitude);
+        MathContext work = new MathContext(mc.getPrecision() + PowerEngine.GUARD_DIGITS, RoundingMode.HALF_EVEN);
+
+        // Γ(z) = Γ(z + n) / (z (z + 1) ... (z + n - 1)), com z + n grande o bastante
+        // para a série de Stirling alcançar a precisão de trabalho.
+        int shift = (int) Math.max(0, Math.ceil(work.getPrecision() - z.doubleValue()));
+        BigDecimal shifted = z;
+        BigDecimal divisor = BigDecimal.ONE;
+        for (int k = 0; k < shift; k++) {
+            divisor = divisor.multiply(shifted, work);
+            shifted = shifted.add(BigDecimal.ONE);
+        }
+        BigDecimal result = BigMath.exp(lnGammaStirling(shifted, work), work).divide(divisor, mc);
+        return result.setScale(Operations.DIVISION_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * ln Γ(z) = (z - 1/2) ln z - z + ln(2π)/2 + Σ B(2k) / (2k (2k - 1) z^(2k - 1)).
+     */
+    private static BigDecimal lnGammaStirling(BigDecimal z, MathContext mc) {
+        BigDecimal half = new BigDecimal("0.5");
+        BigDecimal sum = z.subtract(half).multiply(BigMath.ln(z, mc), mc)
+                .subtract(z)
+                .add(BigMath.ln(BigMath.pi(mc).multiply(BigDecimal.valueOf(2)), mc).multiply(half), mc);
+
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(mc.getPrecision() + 1);
+        BigDecimal inverseSquared = BigDecimal.ONE.divide(z.multiply(z), mc);
+        BigDecimal power = BigDecimal.ONE.divide(z, mc);
+        BigDecimal previous = null;
+        for (int k = 1; ; k++) {
+            BigInteger[] b = bernoulli(k);
+            BigInteger denominator = b[1].multiply(BigInteger.valueOf(2L * k * (2 * k - 1)));
+            BigDecimal term = new BigDecimal(b[0]).multiply(power, mc).divide(new BigDecimal(denominator), mc);
+            // A série é assintótica: para quando o termo fica pequeno ou volta a crescer.
+            if (term.abs().compareTo(epsilon) < 0
+                    || (previous != null && term.abs().compareTo(previous) >= 0)) {
+                break;
+            }
+            sum = sum.add(term, mc);
+            previous = term.abs();
+            power = power.multiply(inverseSquared, mc);
+        }
+        return sum;
+    }
+
+    /**
+     * B(2k) pela recorrência Σ C(m + 1, j) B(j) = 0, guardando os já calculados.
+     */
+    private static synchronized BigInteger[] bernoulli(int k) {
+        while (bernoulli.size() < k) {
+            int m = 2 * (bernoulli.size() + 1);
+            // B(0) = 1 e B(1) = -1/2 somam (1 - m) / 2; os de índice ímpar maiores são zero.
+            BigInteger numerator = BigInteger.valueOf(1 - m);
+            BigInteger denominator = BigInteger.valueOf(2);
+            BigInteger binomial = BigInteger.ONE;
+            for (int j = 2; j < m; j += 2) {
+                binomial = binomial.multiply(BigInteger.valueOf((long) (m + 2 - j) * (m + 3 - j)))
+                        .divide(BigInteger.valueOf((long) (j - 1) * j));
+                BigInteger[] bj = bernoulli.get(j / 2 - 1);
+                numerator = numerator.multiply(bj[1]).add(binomial.multiply(bj[0]).multiply(denominator));
+                denominator = denominator.multiply(bj[1]);
+                BigInteger gcd = numerator.gcd(denominator);
+                numerator = numerator.divide(gcd);
+                denominator = denominator.divide(gcd);
+            }
+            // B(m) = -(soma) / (m + 1)
+            denominator = denominator.multiply(BigInteger.valueOf(m + 1));
+            BigInteger gcd = numerator.gcd(denominator);
+            bernoulli.add(new BigInteger[]{numerator.negate().divide(gcd), denominator.divide(gcd)});
+        }
+        return bernoulli.get(k - 1);
+    }
+
+    /**
+     * Estimativa de log10(n!) pela fórmula de Stirling.
+     */
+    private static double log10Factorial(double n) {
+        if (n < 2) {
+            return 0;
+        }
+        return (n * Math.log(n) - n + 0.5 * Math.log(2 * Math.PI * n)) / LN10;
+    }
+
+    /**
+     * Estimativa de log10|Γ(z)|, usando a reflexão Γ(z) Γ(1 - z) = π / sen(πz)
+     * para z < 1/2.
+     */
+    private static double log10AbsGamma(double z) {
+        if (z < 0.5) {
+            double sine = Math.abs(Math.sin(Math.PI * z));
+            return (Math.log(Math.PI) - Math.log(sine)) / LN10 - log10AbsGamma(1 - z);
+        }
+        return ((z - 0.5) * Math.log(z) - z + 0.5 * Math.log(2 * Math.PI)) / LN10;
+    }
+}
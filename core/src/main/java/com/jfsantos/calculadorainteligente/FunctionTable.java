@@ -0,0 +1,140 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tabela de uma função de x: a expressão é compilada uma vez e amostrada em
+ * double nos pontos {@code from}, {@code from + step}, ... até {@code to},
+ * dividindo os pontos em blocos avaliados em paralelo em um
+ * {@link ForkJoinPool}. Pontos em que a função não está definida ficam NaN.
+ */
+public final class FunctionTable {
+    /** Recebe a tabela em blocos, à medida que ficam prontos. */
+    public interface ChunkListener {
+        /**
+         * Os valores de {@code values[from]} até {@code values[to - 1]} estão
+         * prontos. Os blocos podem chegar fora de ordem.
+         */
+        void onChunk(double[] values, int from, int to);
+
+        /** Todos os blocos foram entregues. */
+        void onComplete(double[] values);
+    }
+
+    /** Pontos avaliados por tarefa; abaixo disso dividir custa mais do que rende. */
+    static final int CHUNK_SIZE = 16 * 1024;
+    static final int MAX_POINTS = 10_000_000;
+
+    private final String expression;
+    private final CompiledExpression compiled;
+
+    private FunctionTable(String expression) {
+        this.expression = expression;
+        this.compiled = CompiledExpression.compileFunction(expression);
+    }
+
+    /**
+     * Função escrita como na tela da calculadora, com x como variável
+     * ("x ^ 2 + 2 × x").
+     */
+    public static FunctionTable compile(String expression) {
+        return new FunctionTable(expression);
+    }
+
+    /**
+     * Função ditada ("x ao quadrado mais dois x"), convertida por
+     * {@link VoiceCommandProcessor#processFunctionCommandDetailed(String)}.
+     */
+    public static FunctionTable fromVoice(String voiceText) {
+        return compile(VoiceCommandProcessor.processFunctionCommandDetailed(voiceText).getUiExpression());
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /** Quantidade de pontos entre {@code from} e {@code to}, inclusive. */
+    public static int pointCount(double from, double to, double step) {
+        if (!(step > 0) || !(to >= from) || Double.isInfinite(to - from)) {
+            throw new IllegalArgumentException("Intervalo inválido");
+        }
+        // A folga absorve o arredondamento de (to - from) / step quando o passo divide o intervalo.
+        double count = Math.floor((to - from) / step + 1e-9) + 1;
+        if (count > MAX_POINTS) {
+            throw new IllegalArgumentException("Intervalo com pontos demais");
+        }
+        return (int) count;
+    }
+
+    /** Valor de x no ponto {@code index}, calculado sem acumular erro. */
+    public static double x(double from, double step, int index) {
+        return from + index * step;
+    }
+
+    /** Calcula a tabela inteira e só então a devolve. */
+    public double[] sample(double from, double to, double step, ForkJoinPool pool) {
+        double[] values = new double[pointCount(from, to, step)];
+        pool.invoke(new Chunk(null, from, step, values, 0, values.length, null, null));
+        return values;
+    }
+
+    /**
+     * Calcula a tabela em segundo plano e entrega cada bloco a {@code listener}
+     * em {@code resultExecutor}, por exemplo a thread da tela. Cancelar a tarefa
+     * devolvida descarta os blocos que ainda não começaram, e onComplete não é
+     * chamado.
+     */
+    public ForkJoinTask<?> stream(double from, double to, double step, ForkJoinPool pool,
+                                  Executor resultExecutor, ChunkListener listener) {
+        double[] values = new double[pointCount(from, to, step)];
+        Chunk root = new Chunk(null, from, step, values, 0, values.length, resultExecutor, listener);
+        pool.execute(root);
+        return root;
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk root;
+        private final double start;
+        private final double step;
+        private final double[] values;
+        private final int from;
+        private final int to;
+        private final Executor resultExecutor;
+        private final ChunkListener listener;
+
+        Chunk(Chunk root, double start, double step, double[] values, int from, int to,
+              Executor resultExecutor, ChunkListener listener) {
+            this.root = root == null ? this : root;
+            this.start = start;
+            this.step = step;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.resultExecutor = resultExecutor;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Chunk(root, start, step, values, from, middle, resultExecutor, listener),
+                        new Chunk(root, start, step, values, middle, to, resultExecutor, listener));
+            } else if (!root.isCancelled()) {
+                compiled.sample(start, step, from, to, values);
+                if (listener != null) {
+                    // O Executor garante que a escrita acima é vista por quem recebe o bloco.
+                    resultExecutor.execute(() -> listener.onChunk(values, from, to));
+                }
+            }
+            if (root == this && listener != null && !isCancelled()) {
+                resultExecutor.execute(() -> listener.onComplete(values));
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Avaliador que guarda um ponto de retomada após cada token do último texto
+ * avaliado. Quando o texto muda só no fim (um dígito a mais, um token apagado),
+ * a análise recomeça do último ponto ainda válido em vez do início, de modo que
+ * o custo por tecla não cresce com o tamanho da expressão. Trocar os
+ * registradores descarta os pontos de retomada, que guardam valores já lidos.
+ *
+ * Não é thread-safe: cada {@link Calculator} tem a sua instância.
+ */
+final class IncrementalEvaluator {
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private String source = "";
+    private Registers registers = Registers.EMPTY;
+    private BigDecimal result;
+    private RuntimeException resultFailure;
+    private boolean finished;
+
+    IncrementalEvaluator() {
+        checkpoints.add(new Checkpoint(ExpressionParser.INITIAL, PersistentStack.<BigDecimal>empty(), null));
+        finished = true;
+    }
+
+    BigDecimal evaluate(String text) throws ArithmeticException {
+        return evaluate(text, EvaluationContext.unbounded());
+    }
+
+    /**
+     * Se {@code context} interromper a avaliação, os pontos de retomada já
+     * calculados continuam valendo e a próxima chamada segue de onde esta parou.
+     */
+    BigDecimal evaluate(String text, EvaluationContext context) throws ArithmeticException {
+        return evaluate(text, context, registers);
+    }
+
+    BigDecimal evaluate(String text, EvaluationContext context, Registers registers) throws ArithmeticException {
+        if (registers != this.registers) {
+            this.registers = registers;
+            while (checkpoints.size() > 1) {
+                checkpoints.remove(checkpoints.size() - 1);
+            }
+            source = "";
+            result = null;
+            resultFailure = null;
+            finished = false;
+        }
+        Checkpoint last = advance(text, context);
+        if (result == null && resultFailure == null) {
+            try {
+                if (last.failure != null) {
+                    throw last.failure;
+                }
+                EvaluatingSink sink = new EvaluatingSink(last.values, context, registers);
+                ExpressionParser.finish(last.state, sink);
+                result = sink.values.isEmpty() ? BigDecimal.ZERO : sink.values.peek();
+            } catch (ArithmeticException | NumberFormatException e) {
+                if (context.isExhausted()) {
+                    throw e;
+                }
+                resultFailure = e;
+            }
+        }
+        if (resultFailure != null) {
+            throw resultFailure;
+        }
+        return result;
+    }
+
+    boolean isComplete(String text) {
+        return isComplete(text, EvaluationContext.unbounded());
+    }
+
+    boolean isComplete(String text, EvaluationContext context) {
+        Checkpoint last;
+        try {
+            last = advance(text, context);
+        } catch (ResultTooLargeException | EvaluationTimeoutException e) {
+            return ExpressionParser.isComplete(text);
+        }
+        if (last.failure != null) {
+            return ExpressionParser.isComplete(text);
+        }
+        return ExpressionParser.isComplete(last.state, text);
+    }
+
+    private Checkpoint advance(String text, EvaluationContext context) {
+        if (!text.equals(source)) {
+            int common = commonPrefixLength(source, text);
+            // Um token só continua válido se o caractere que o encerrou também não mudou.
+            while (checkpoints.size() > 1 && lastCheckpoint().state.end >= common) {
+                checkpoints.remove(checkpoints.size() - 1);
+            }
+            source = text;
+            result = null;
+            resultFailure = null;
+            finished = false;
+        }
+        if (finished) {
+            return lastCheckpoint();
+        }
+
+        Checkpoint checkpoint = lastCheckpoint();
+        while (checkpoint.failure == null) {
+            context.charge(1);
+            EvaluatingSink sink = new EvaluatingSink(checkpoint.values, context, registers);
+            ExpressionParser.State next;
+            try {
+                next = ExpressionParser.next(checkpoint.state, text, sink);
+            } catch (ArithmeticException | NumberFormatException e) {
+                if (context.isExhausted()) {
+                    throw e;
+                }
+                ExpressionParser.State failed = new ExpressionParser.State(checkpoint.state.operators,
+                        checkpoint.state.lastTokenWasOperator, checkpoint.state.openParentheses,
+                        checkpoint.state.unbalanced, text.length());
+                checkpoint = new Checkpoint(failed, checkpoint.values, e);
+                checkpoints.add(checkpoint);
+                break;
+            }
+            if (next == null) {
+                break;
+            }
+            checkpoint = new Checkpoint(next, sink.values, null);
+            checkpoints.add(checkpoint);
+        }
+        finished = true;
+        return checkpoint;
+    }
+
+    private Checkpoint lastCheckpoint() {
+        return checkpoints.get(checkpoints.size() - 1);
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Checkpoint {
+        final ExpressionParser.State state;
+        final PersistentStack<BigDecimal> values;
+        final RuntimeException failure;
+
+        Checkpoint(ExpressionParser.State state, PersistentStack<BigDecimal> values, RuntimeException failure) {
+            this.state = state;
+            this.values = values;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Executa cada operação assim que o analisador a emite.
+     */
+    private static final class EvaluatingSink implements ExpressionParser.Sink {
+        PersistentStack<BigDecimal> values;
+        private final EvaluationContext context;
+        private final Registers registers;
+
+        EvaluatingSink(PersistentStack<BigDecimal> values, EvaluationContext context, Registers registers) {
+            this.values = values;
+            this.context = context;
+            this.registers = registers;
+        }
+
+        @Override
+        public void push(BigDecimal value) {
+            values = values.push(value);
+        }
+
+        @Override
+        public void register(int slot) {
+            values = values.push(registers.get(slot));
+        }
+
+        @Override
+        public void binary(int operator) {
+            if (values.size() < 2) throw new ArithmeticException("Expressão inválida");
+            BigDecimal b = values.peek();
+            values = values.pop();
+            BigDecimal a = values.peek();
+            context.charge(Operations.cost(operator, b, a));
+            values = values.pop().push(Operations.applyOperation(operator, b, a));
+        }
+
+        @Override
+        public void function(int function) {
+            if (values.isEmpty()) throw new ArithmeticException("Expressão inválida");
+            BigDecimal a = values.peek();
+            context.charge(Operations.functionCost(a));
+            values = values.pop().push(Operations.applyFunction(function, a));
+        }
+
+        @Override
+        public void factorial() {
+            if (values.isEmpty()) throw new ArithmeticException("Expressão inválida");
+            BigDecimal a = values.peek();
+            context.charge(Operations.factorialCost(a));
+            values = values.pop().push(Operations.applyFactorial(a));
+        }
+    }
+}
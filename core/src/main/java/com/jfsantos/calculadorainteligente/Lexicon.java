@@ -0,0 +1,103 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.util.Arrays;
+
+/**
+ * Palavras conhecidas pelo reconhecimento de voz, cada uma com um número
+ * ({@code id}) e um conjunto de marcas. {@link #id(String, int, int)} acha a
+ * palavra de um trecho do texto sem criar a String do trecho, então a frase
+ * ditada vira um array de ids sem alocar por palavra.
+ *
+ * Montado uma vez com {@link #intern} e {@link #mark}; depois disso só é lido
+ * e pode ser compartilhado entre threads desde que publicado com segurança.
+ */
+final class Lexicon {
+    /** Id de uma palavra que não está no léxico. */
+    static final int UNKNOWN = -1;
+
+    private String[] words = new String[64];
+    private int[] flags = new int[64];
+    private int size;
+    // Tabela de hash aberto de ids, indexada pelo hash da palavra.
+    private int[] slots = newSlots(128);
+
+    int size() {
+        return size;
+    }
+
+    String word(int id) {
+        return words[id];
+    }
+
+    /** Id de {@code word}, que é incluída se ainda não estiver no léxico. */
+    int intern(String word) {
+        int id = id(word, 0, word.length());
+        if (id != UNKNOWN) {
+            return id;
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+            flags = Arrays.copyOf(flags, size * 2);
+        }
+        // Carga máxima de metade mantém as sondagens curtas.
+        if ((size + 1) * 2 > slots.length) {
+            slots = newSlots(slots.length * 2);
+            for (int i = 0; i < size; i++) {
+                insert(words[i], i);
+            }
+        }
+        words[size] = word;
+        insert(word, size);
+        return size++;
+    }
+
+    /** Inclui {@code word} se preciso e acrescenta {@code flag} às suas marcas. */
+    void mark(String word, int flag) {
+        int id = intern(word);
+        flags[id] |= flag;
+    }
+
+    /** Se a palavra {@code id} tem a marca {@code flag}; falso para {@link #UNKNOWN}. */
+    boolean is(int id, int flag) {
+        return id != UNKNOWN && (flags[id] & flag) != 0;
+    }
+
+    /** Id da palavra escrita entre {@code start} e {@code end}, ou {@link #UNKNOWN}. */
+    int id(String text, int start, int end) {
+        int length = end - start;
+        int mask = slots.length - 1;
+        for (int slot = hash(text, start, end) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == UNKNOWN) {
+                return UNKNOWN;
+            }
+            String word = words[id];
+            if (word.length() == length && text.regionMatches(start, word, 0, length)) {
+                return id;
+            }
+        }
+    }
+
+    private void insert(String word, int id) {
+        int mask = slots.length - 1;
+        int slot = hash(word, 0, word.length()) & mask;
+        while (slots[slot] != UNKNOWN) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id;
+    }
+
+    private static int hash(String text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, UNKNOWN);
+        return slots;
+    }
+}
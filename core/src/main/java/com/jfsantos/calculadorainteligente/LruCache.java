@@ -0,0 +1,70 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache limitado por tamanho que descarta a entrada usada há mais tempo (ou,
+ * com {@link Eviction#OLDEST_INSERTED}, a inserida há mais tempo) e conta
+ * acertos e faltas de {@link #get}.
+ * Todos os métodos são sincronizados, então a mesma instância pode ser
+ * compartilhada entre threads.
+ */
+public final class LruCache<K, V> {
+    /** Qual entrada sai quando o cache está cheio. */
+    public enum Eviction {
+        LEAST_RECENTLY_USED,
+        OLDEST_INSERTED
+    }
+
+    private final LinkedHashMap<K, V> entries;
+    private long hits;
+    private long misses;
+
+    public LruCache(int capacity) {
+        this(capacity, Eviction.LEAST_RECENTLY_USED);
+    }
+
+    public LruCache(final int capacity, Eviction eviction) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva");
+        }
+        boolean accessOrder = eviction == Eviction.LEAST_RECENTLY_USED;
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, accessOrder) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    public synchronized long missCount() {
+        return misses;
+    }
+}
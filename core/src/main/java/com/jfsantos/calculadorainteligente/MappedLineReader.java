@@ -0,0 +1,78 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lê as linhas UTF-8 de um arquivo mapeado em memória, em janelas de tamanho
+ * fixo, então arquivos maiores que 2 GB também funcionam. O fim de linha pode
+ * ser \n ou \r\n.
+ */
+final class MappedLineReader implements Iterator<String>, Closeable {
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private byte[] line = new byte[256];
+
+    MappedLineReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < size;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int length = 0;
+        while (position < size) {
+            byte b = byteAt(position++);
+            if (b == '\n') {
+                break;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = b;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(long offset) {
+        if (window == null || offset - windowStart >= window.limit()) {
+            try {
+                windowStart = offset;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(WINDOW_SIZE, size - offset));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Operações aritméticas e funções usadas pelos avaliadores da calculadora.
+ */
+final class Operations {
+    static final int DIVISION_SCALE = 10;
+    /** Dígitos significativos dos resultados de sin, cos, tan, √, log e ln. */
+    static final MathContext FUNCTION_CONTEXT = new MathContext(32, RoundingMode.HALF_EVEN);
+
+    /** Custo de uma função ou de um cálculo por série com precisão limitada. */
+    static final long SERIES_COST = 20000;
+
+    private static final int FUNCTION_CACHE_CAPACITY = 64;
+    // Evita refazer as séries quando a mesma função é reavaliada a cada tecla.
+    private static final LruCache<String, BigDecimal> functionResults = new LruCache<>(FUNCTION_CACHE_CAPACITY);
+
+    private Operations() {
+    }
+
+    /**
+     * Custo estimado de uma operação, em multiplicações de palavras de 9
+     * dígitos. Só serve para comparar com o orçamento de um
+     * {@link EvaluationContext}.
+     */
+    static long cost(int operator, BigDecimal b, BigDecimal a) {
+        long wa = words(a);
+        long wb = words(b);
+        switch (operator) {
+            case ExpressionLexer.ADD:
+            case ExpressionLexer.SUBTRACT:
+                return wa + wb;
+            case ExpressionLexer.MULTIPLY:
+                return wa * wb;
+            case ExpressionLexer.DIVIDE:
+            case ExpressionLexer.PERCENT:
+                return (wa + wb + 2) * wb;
+            case ExpressionLexer.POWER:
+                return PowerEngine.cost(a, b);
+        }
+        return 1;
+    }
+
+    static long functionCost(BigDecimal a) {
+        return SERIES_COST + words(a);
+    }
+
+    static long factorialCost(BigDecimal a) {
+        return FactorialEngine.cost(a);
+    }
+
+    private static long words(BigDecimal value) {
+        return value.unscaledValue().bitLength() / 30 + 1;
+    }
+
+    static BigDecimal applyOperation(int operator, BigDecimal b, BigDecimal a) throws ArithmeticException {
+        switch (operator) {
+            case ExpressionLexer.ADD: return a.add(b);
+            case ExpressionLexer.SUBTRACT: return a.subtract(b);
+            case ExpressionLexer.MULTIPLY: return a.multiply(b);
+            case ExpressionLexer.DIVIDE:
+                if (b.compareTo(BigDecimal.ZERO) == 0) {
+                    throw new ArithmeticException("Não é possível dividir por zero");
+                }
+                return a.divide(b, DIVISION_SCALE, RoundingMode.HALF_UP);
+            case ExpressionLexer.PERCENT:
+                return a.multiply(b.divide(new BigDecimal("100"), DIVISION_SCALE, RoundingMode.HALF_UP));
+            case ExpressionLexer.POWER:
+                return PowerEngine.pow(a, b);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    static BigDecimal applyFunction(int function, BigDecimal a) throws ArithmeticException {
+        String key = function + " " + a;
+        BigDecimal result = functionResults.get(key);
+        if (result == null) {
+            result = computeFunction(function, a);
+            functionResults.put(key, result);
+        }
+        return result;
+    }
+
+    private static BigDecimal computeFunction(int function, BigDecimal a) {
+        switch (function) {
+            case ExpressionLexer.SIN: return BigMath.sinDegrees(a, FUNCTION_CONTEXT);
+            case ExpressionLexer.COS: return BigMath.cosDegrees(a, FUNCTION_CONTEXT);
+            case ExpressionLexer.TAN: return BigMath.tanDegrees(a, FUNCTION_CONTEXT);
+            case ExpressionLexer.SQRT: return BigMath.sqrt(a, FUNCTION_CONTEXT);
+            case ExpressionLexer.LOG: return BigMath.log10(a, FUNCTION_CONTEXT);
+            case ExpressionLexer.LN: return BigMath.ln(a, FUNCTION_CONTEXT);
+            default: return a;
+        }
+    }
+
+    static BigDecimal applyFactorial(BigDecimal a) {
+        return FactorialEngine.factorial(a);
+    }
+}
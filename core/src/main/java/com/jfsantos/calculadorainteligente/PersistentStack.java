@@ -0,0 +1,46 @@
+package com.jfsantos.calculadorainteligente;
+
+/**
+ * Pilha imutável encadeada. Empilhar e desempilhar devolvem novas pilhas que
+ * compartilham a cauda com a original, então guardar uma cópia do estado custa O(1).
+ */
+final class PersistentStack<T> {
+    private static final PersistentStack<Object> EMPTY = new PersistentStack<>(null, null, 0);
+
+    private final T head;
+    private final PersistentStack<T> tail;
+    private final int size;
+
+    private PersistentStack(T head, PersistentStack<T> tail, int size) {
+        this.head = head;
+        this.tail = tail;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentStack<T> empty() {
+        return (PersistentStack<T>) EMPTY;
+    }
+
+    PersistentStack<T> push(T value) {
+        return new PersistentStack<>(value, this, size + 1);
+    }
+
+    T peek() {
+        if (size == 0) throw new IllegalStateException("Pilha vazia");
+        return head;
+    }
+
+    PersistentStack<T> pop() {
+        if (size == 0) throw new IllegalStateException("Pilha vazia");
+        return tail;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,157 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trie de frases por palavra: as palavras são os ids do {@link Lexicon} e as
+ * arestas (nó, palavra) → nó ficam em uma tabela de hash aberto de longs.
+ * {@link #match} encontra a frase mais longa que começa em uma posição com
+ * uma única passada para a frente sobre o array de ids de
+ * {@link SpeechTokens}, sem montar Strings nem alocar, e sem limite de
+ * palavras por frase.
+ *
+ * Montada uma vez com {@link #put}; depois disso só é lida e pode ser
+ * compartilhada entre threads desde que publicada com segurança.
+ */
+final class PhraseTrie<V> {
+    /** Resultado de {@link #match} quando nenhuma frase começa na posição. */
+    static final long NO_MATCH = -1;
+
+    private static final int ROOT = 0;
+    private static final long EMPTY_KEY = -1;
+
+    private final Lexicon lexicon;
+    private final List<V> values = new ArrayList<>();
+    // Arestas: chave nó << 32 | palavra, valor o nó de destino.
+    private long[] edgeKeys = newKeys(64);
+    private int[] edgeTargets = new int[64];
+    private int edgeCount;
+
+    PhraseTrie(Lexicon lexicon) {
+        this.lexicon = lexicon;
+        values.add(null);
+    }
+
+    /**
+     * Inclui {@code phrase}, com as palavras separadas por um espaço. Uma frase
+     * repetida fica com o último valor.
+     */
+    void put(String phrase, V value) {
+        int node = ROOT;
+        int start = 0;
+        while (start <= phrase.length()) {
+            int end = phrase.indexOf(' ', start);
+            if (end < 0) {
+                end = phrase.length();
+            }
+            if (end > start) {
+                int id = lexicon.intern(phrase.substring(start, end));
+                int child = child(node, id);
+                if (child < 0) {
+                    child = values.size();
+                    values.add(null);
+                    addEdge(node, id, child);
+                }
+                node = child;
+            }
+            start = end + 1;
+        }
+        if (node != ROOT) {
+            values.set(node, value);
+        }
+    }
+
+    /**
+     * Frase mais longa do trie que começa em {@code words[index]}, olhando só
+     * as {@code count} primeiras palavras. Devolve {@link #NO_MATCH} ou o nó e
+     * a quantidade de palavras empacotados em um long; use
+     * {@link #value(long)} e {@link #length(long)}.
+     */
+    long match(int[] words, int count, int index) {
+        long best = NO_MATCH;
+        int node = ROOT;
+        for (int i = index; i < count; i++) {
+            if (words[i] == Lexicon.UNKNOWN) {
+                break;
+            }
+            node = child(node, words[i]);
+            if (node < 0) {
+                break;
+            }
+            if (values.get(node) != null) {
+                best = ((long) node << 32) | (i - index + 1);
+            }
+        }
+        return best;
+    }
+
+    long match(SpeechTokens tokens, int index) {
+        return match(tokens.ids(), tokens.size(), index);
+    }
+
+    V value(long match) {
+        return values.get((int) (match >>> 32));
+    }
+
+    static int length(long match) {
+        return (int) match;
+    }
+
+    private int child(int node, int word) {
+        long key = edgeKey(node, word);
+        int mask = edgeKeys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long existing = edgeKeys[slot];
+            if (existing == key) {
+                return edgeTargets[slot];
+            }
+            if (existing == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    private void addEdge(int node, int word, int child) {
+        // Carga máxima de metade mantém as sondagens curtas.
+        if ((edgeCount + 1) * 2 > edgeKeys.length) {
+            long[] oldKeys = edgeKeys;
+            int[] oldTargets = edgeTargets;
+            edgeKeys = newKeys(oldKeys.length * 2);
+            edgeTargets = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY_KEY) {
+                    insert(oldKeys[i], oldTargets[i]);
+                }
+            }
+        }
+        insert(edgeKey(node, word), child);
+        edgeCount++;
+    }
+
+    private void insert(long key, int target) {
+        int mask = edgeKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (edgeKeys[slot] != EMPTY_KEY) {
+            slot = (slot + 1) & mask;
+        }
+        edgeKeys[slot] = key;
+        edgeTargets[slot] = target;
+    }
+
+    private static long edgeKey(int node, int word) {
+        return ((long) node << 32) | word;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        return keys;
+    }
+}
@@ -0,0 +1,157 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Potenciação para o operador ^.
+ *
+ * Expoentes inteiros positivos usam exponenciação binária exata. Expoentes
+ * negativos e fracionários são calculados com precisão limitada e arredondados
+ * na mesma escala da divisão. Antes de calcular, o tamanho do resultado é
+ * estimado e potências que não caberiam no visor são recusadas, assim como as
+ * que só dariam um valor aproximado com parte inteira maior que a precisão de
+ * trabalho (seriam mostradas com zeros no lugar dos dígitos que faltam).
+ */
+final class PowerEngine {
+    static final int MAX_RESULT_DIGITS = 10000;
+    static final String TOO_LARGE_MESSAGE = "Resultado muito grande";
+
+    static final int GUARD_DIGITS = 10;
+    private static final int MAX_WORKING_PRECISION = 120;
+
+    private PowerEngine() {
+    }
+
+    static BigDecimal pow(BigDecimal base, BigDecimal exponent) throws ArithmeticException {
+        if (exponent.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (base.signum() == 0) {
+            if (exponent.signum() < 0) {
+                throw new ArithmeticException("Não é possível dividir por zero");
+            }
+            return BigDecimal.ZERO;
+        }
+
+        boolean integral = isIntegral(exponent);
+        if (!integral && base.signum() < 0) {
+            throw new ArithmeticException("Expressão inválida");
+        }
+        if (base.abs().compareTo(BigDecimal.ONE) == 0) {
+            boolean negative = base.signum() < 0 && exponent.toBigInteger().testBit(0);
+            return negative ? BigDecimal.ONE.negate() : BigDecimal.ONE;
+        }
+
+        double magnitude = exponent.doubleValue() * log10Abs(base);
+        if (magnitude > MAX_RESULT_DIGITS) {
+            throw new ResultTooLargeException();
+        }
+
+        if (integral && exponent.signum() > 0 && fitsExactly(base, exponent)) {
+            return powExact(base, exponent.intValue());
+        }
+        if (magnitude < -(Operations.DIVISION_SCALE + 2)) {
+            return BigDecimal.ZERO;
+        }
+        if (magnitude + Operations.DIVISION_SCALE > MAX_WORKING_PRECISION - GUARD_DIGITS) {
+            throw new ResultTooLargeException();
+        }
+
+        MathContext mc = workingContext(magnitude);
+        BigDecimal result;
+        if (integral && exponent.signum() > 0) {
+            result = powBounded(base, exponent.toBigInteger(), mc);
+        } else if (integral) {
+            BigDecimal positive = exponent.negate();
+            BigDecimal denominator = fitsExactly(base, positive)
+                    ? powExact(base, positive.intValue())
+                    : powBounded(base, positive.toBigInteger(), mc);
+            return BigDecimal.ONE.divide(denominator, Operations.DIVISION_SCALE, RoundingMode.HALF_UP);
+        } else {
+            result = BigMath.exp(exponent.multiply(BigMath.ln(base, mc), mc), mc);
+        }
+        return result.setScale(Operations.DIVISION_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Custo estimado de {@link #pow}: o quadrado do tamanho do resultado exato,
+     * em palavras de 9 dígitos. Potências que serão recusadas custam quase nada.
+     */
+    static long cost(BigDecimal base, BigDecimal exponent) {
+        if (exponent.signum() == 0 || base.signum() == 0 || base.abs().compareTo(BigDecimal.ONE) == 0) {
+            return 1;
+        }
+        if (!isIntegral(exponent)) {
+            return Operations.SERIES_COST;
+        }
+        if (exponent.doubleValue() * log10Abs(base) > MAX_RESULT_DIGITS) {
+            return 1;
+        }
+        BigDecimal positive = exponent.abs();
+        if (!fitsExactly(base, positive)) {
+            return Operations.SERIES_COST;
+        }
+        long words = (long) (positive.doubleValue() * Math.max(base.stripTrailingZeros().precision(), 1) / 9) + 1;
+        return words * words;
+    }
+
+    /**
+     * Estimativa de log10(|value|) que funciona mesmo fora da faixa de um double.
+     */
+    static double log10Abs(BigDecimal value) {
+        BigDecimal abs = value.abs();
+        int exponent10 = abs.precision() - abs.scale() - 1;
+        double leading = new BigDecimal(abs.unscaledValue(), abs.precision() - 1).doubleValue();
+        return exponent10 + Math.log10(leading);
+    }
+
+    static boolean isIntegral(BigDecimal value) {
+        return value.signum() == 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    private static boolean fitsExactly(BigDecimal base, BigDecimal exponent) {
+        int digits = Math.max(base.stripTrailingZeros().precision(), 1);
+        return exponent.doubleValue() * digits <= MAX_RESULT_DIGITS;
+    }
+
+    static MathContext workingContext(double magnitude) {
+        int digits = (int) Math.max(0, Math.ceil(magnitude)) + Operations.DIVISION_SCALE + GUARD_DIGITS;
+        return new MathContext(Math.min(digits, MAX_WORKING_PRECISION), RoundingMode.HALF_EVEN);
+    }
+
+    private static BigDecimal powExact(BigDecimal base, int exponent) {
+        BigDecimal result = BigDecimal.ONE;
+        BigDecimal square = base;
+        int n = exponent;
+        while (n > 0) {
+            if ((n & 1) != 0) {
+                result = result.multiply(square);
+            }
+            n >>= 1;
+            if (n > 0) {
+                square = square.multiply(square);
+            }
+        }
+        return result;
+    }
+
+    private static BigDecimal powBounded(BigDecimal base, BigInteger exponent, MathContext mc) {
+        MathContext work = new MathContext(mc.getPrecision() + exponent.bitLength() / 3 + GUARD_DIGITS,
+                RoundingMode.HALF_EVEN);
+        BigDecimal result = BigDecimal.ONE;
+        BigDecimal square = base.round(work);
+        int bits = exponent.bitLength();
+        for (int bit = 0; bit < bits; bit++) {
+            if (exponent.testBit(bit)) {
+                result = result.multiply(square, work);
+            }
+            if (bit + 1 < bits) {
+                square = square.multiply(square, work);
+            }
+        }
+        return result.round(mc);
+    }
+}
@@ -0,0 +1,329 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Fração exata para o modo exato da calculadora. Enquanto numerador e
+ * denominador cabem em long a conta é feita em long; quando estoura, a
+ * fração é simplificada e a conta refeita, e só então passa para BigInteger.
+ *
+ * As operações não simplificam o resultado: o MDC só é calculado quando um
+ * estouro obriga, quando a fração em BigInteger passa de {@link #REDUCE_BITS}
+ * ou na conversão para decimal. O denominador é sempre positivo.
+ */
+final class Rational {
+    static final Rational ZERO = new Rational(0, 1, true);
+
+    // Acima deste tamanho uma fração em BigInteger é simplificada a cada operação.
+    private static final int REDUCE_BITS = 256;
+    // Dígitos decimais por bit, para estimar o tamanho de uma potência.
+    private static final double DIGITS_PER_BIT = 0.30103;
+    private static final long[] POWERS_OF_TEN = new long[19];
+    private static final BigInteger FIVE = BigInteger.valueOf(5);
+    private static final BigInteger HUNDRED = BigInteger.valueOf(100);
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Forma em long; vale quando bigNumerator é null.
+    private final long numerator;
+    private final long denominator;
+    private final BigInteger bigNumerator;
+    private final BigInteger bigDenominator;
+    private final boolean reduced;
+
+    private Rational(long numerator, long denominator, boolean reduced) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        this.bigNumerator = null;
+        this.bigDenominator = null;
+        this.reduced = reduced;
+    }
+
+    private Rational(BigInteger numerator, BigInteger denominator, boolean reduced) {
+        this.numerator = 0;
+        this.denominator = 0;
+        this.bigNumerator = numerator;
+        this.bigDenominator = denominator;
+        this.reduced = reduced;
+    }
+
+    /**
+     * Valor exato de {@code mantissa × 10^-scale}, com {@code scale} ≥ 0;
+     * acima de 18 casas o denominador já não cabe em um long.
+     */
+    static Rational valueOf(long mantissa, int scale) {
+        if (scale >= POWERS_OF_TEN.length) {
+            return big(BigInteger.valueOf(mantissa), BigInteger.TEN.pow(scale), false);
+        }
+        return new Rational(mantissa, POWERS_OF_TEN[scale], scale == 0);
+    }
+
+    static Rational valueOf(BigDecimal value) {
+        if (ScaledDecimal.fits(value) && value.scale() < POWERS_OF_TEN.length) {
+            return valueOf(ScaledDecimal.mantissa(value), value.scale());
+        }
+        if (value.scale() <= 0) {
+            return big(value.toBigIntegerExact(), BigInteger.ONE, true);
+        }
+        return big(value.unscaledValue(), BigInteger.TEN.pow(value.scale()), false);
+    }
+
+    int signum() {
+        return bigNumerator == null ? Long.signum(numerator) : bigNumerator.signum();
+    }
+
+    boolean isInteger() {
+        Rational r = reduce();
+        return r.bigNumerator == null ? r.denominator == 1 : r.bigDenominator.equals(BigInteger.ONE);
+    }
+
+    /**
+     * Custo estimado de uma operação entre {@code a} e {@code b}, nas mesmas
+     * unidades de {@link Operations#cost}. Frações em long custam uma unidade.
+     */
+    static long cost(Rational a, Rational b) {
+        if (a.bigNumerator == null && b.bigNumerator == null) {
+            return 1;
+        }
+        return a.words() * b.words();
+    }
+
+    /**
+     * Aplica o operador binário {@code operator} ({@link ExpressionLexer}) a
+     * {@code a} e {@code b}. A potência só é exata com expoente inteiro; nos
+     * demais casos devolve null e quem chama a faz em BigDecimal.
+     */
+    static Rational apply(int operator, Rational a, Rational b) throws ArithmeticException {
+        if (operator == ExpressionLexer.POWER) {
+            return pow(a, b);
+        }
+        if (operator == ExpressionLexer.DIVIDE && b.signum() == 0) {
+            throw new ArithmeticException("Não é possível dividir por zero");
+        }
+        if (a.bigNumerator == null && b.bigNumerator == null) {
+            Rational result = applyLong(operator, a, b);
+            if (result != null) {
+                return result;
+            }
+            Rational ra = a.reduce();
+            Rational rb = b.reduce();
+            if ((ra != a || rb != b) && ra.bigNumerator == null && rb.bigNumerator == null) {
+                result = applyLong(operator, ra, rb);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return applyBig(operator, a, b);
+    }
+
+    /**
+     * Valor decimal, para exibir: exato quando a fração tem representação
+     * decimal finita, senão com {@link Operations#DIVISION_SCALE} casas.
+     */
+    BigDecimal toBigDecimal() {
+        Rational r = reduce();
+        BigDecimal n = new BigDecimal(r.bigNumerator());
+        BigInteger d = r.bigDenominator();
+        if (d.equals(BigInteger.ONE)) {
+            return n;
+        }
+        if (isTerminating(d)) {
+            return n.divide(new BigDecimal(d));
+        }
+        return n.divide(new BigDecimal(d), Operations.DIVISION_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /** Valor decimal com a precisão de {@code mc}, para funções e potências não exatas. */
+    BigDecimal toBigDecimal(MathContext mc) {
+        Rational r = reduce();
+        BigDecimal n = new BigDecimal(r.bigNumerator());
+        BigInteger d = r.bigDenominator();
+        return d.equals(BigInteger.ONE) ? n : n.divide(new BigDecimal(d), mc);
+    }
+
+    private static Rational applyLong(int operator, Rational a, Rational b) {
+        long an = a.numerator;
+        long ad = a.denominator;
+        long bn = b.numerator;
+        long bd = b.denominator;
+        try {
+            switch (operator) {
+                case ExpressionLexer.ADD:
+                case ExpressionLexer.SUBTRACT: {
+                    long c = operator == ExpressionLexer.ADD ? bn : Math.negateExact(bn);
+                    if (ad == bd) {
+                        return new Rational(Math.addExact(an, c), ad, false);
+                    }
+                    return new Rational(Math.addExact(Math.multiplyExact(an, bd), Math.multiplyExact(c, ad)),
+                            Math.multiplyExact(ad, bd), false);
+                }
+                case ExpressionLexer.MULTIPLY:
+                    return new Rational(Math.multiplyExact(an, bn), Math.multiplyExact(ad, bd), false);
+                case ExpressionLexer.DIVIDE: {
+                    long n = Math.multiplyExact(an, bd);
+                    long d = Math.multiplyExact(ad, bn);
+                    return d < 0 ? new Rational(Math.negateExact(n), Math.negateExact(d), false)
+                            : new Rational(n, d, false);
+                }
+                case ExpressionLexer.PERCENT:
+                    return new Rational(Math.multiplyExact(an, bn),
+                            Math.multiplyExact(Math.multiplyExact(ad, bd), 100), false);
+                default:
+                    return ZERO;
+            }
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    private static Rational applyBig(int operator, Rational a, Rational b) {
+        BigInteger an = a.bigNumerator();
+        BigInteger ad = a.bigDenominator();
+        BigInteger bn = b.bigNumerator();
+        BigInteger bd = b.bigDenominator();
+        switch (operator) {
+            case ExpressionLexer.ADD:
+                return big(an.multiply(bd).add(bn.multiply(ad)), ad.multiply(bd), false);
+            case ExpressionLexer.SUBTRACT:
+                return big(an.multiply(bd).subtract(bn.multiply(ad)), ad.multiply(bd), false);
+            case ExpressionLexer.MULTIPLY:
+                return big(an.multiply(bn), ad.multiply(bd), false);
+            case ExpressionLexer.DIVIDE: {
+                BigInteger d = ad.multiply(bn);
+                BigInteger n = an.multiply(bd);
+                return d.signum() < 0 ? big(n.negate(), d.negate(), false) : big(n, d, false);
+            }
+            case ExpressionLexer.PERCENT:
+                return big(an.multiply(bn), ad.multiply(bd).multiply(HUNDRED), false);
+            default:
+                return ZERO;
+        }
+    }
+
+    /**
+     * Potência exata para expoentes inteiros cujo resultado cabe no visor;
+     * null nos demais casos.
+     */
+    private static Rational pow(Rational base, Rational exponent) {
+        if (exactPowerDigits(base, exponent) < 0) {
+            return null;
+        }
+        BigInteger e = exponent.reduce().bigNumerator();
+        Rational b = base.reduce();
+        int n = Math.abs(e.intValue());
+        // Numerador e denominador primos entre si continuam assim nas potências.
+        BigInteger numerator = b.bigNumerator().pow(n);
+        BigInteger denominator = b.bigDenominator().pow(n);
+        if (e.signum() >= 0) {
+            return big(numerator, denominator, true);
+        }
+        return numerator.signum() < 0 ? big(denominator.negate(), numerator.negate(), true)
+                : big(denominator, numerator, true);
+    }
+
+    /**
+     * Custo da potência exata: o quadrado do tamanho do resultado, em palavras
+     * de 9 dígitos. Potências que não serão exatas custam uma unidade aqui.
+     */
+    static long powerCost(Rational base, Rational exponent) {
+        double digits = exactPowerDigits(base, exponent);
+        if (digits < 0) {
+            return 1;
+        }
+        long words = (long) (digits / 9) + 1;
+        return words * words;
+    }
+
+    /** Dígitos estimados da potência exata, ou -1 se ela não será exata. */
+    private static double exactPowerDigits(Rational base, Rational exponent) {
+        if (!exponent.isInteger()) {
+            return -1;
+        }
+        BigInteger e = exponent.reduce().bigNumerator();
+        Rational b = base.reduce();
+        if (e.bitLength() >= Integer.SIZE - 1 || e.signum() < 0 && b.signum() == 0) {
+            return -1;
+        }
+        int bits = Math.max(b.bigNumerator().bitLength(), b.bigDenominator().bitLength());
+        double digits = Math.abs(e.doubleValue()) * bits * DIGITS_PER_BIT;
+        return digits > PowerEngine.MAX_RESULT_DIGITS ? -1 : digits;
+    }
+
+    private static Rational big(BigInteger numerator, BigInteger denominator, boolean reduced) {
+        Rational result = new Rational(numerator, denominator, reduced);
+        if (!reduced && Math.max(numerator.bitLength(), denominator.bitLength()) > REDUCE_BITS) {
+            result = result.reduce();
+        }
+        return result.compact();
+    }
+
+    /** Volta para long quando numerador e denominador cabem. */
+    private Rational compact() {
+        if (bigNumerator != null && bigNumerator.bitLength() < Long.SIZE && bigDenominator.bitLength() < Long.SIZE) {
+            return new Rational(bigNumerator.longValue(), bigDenominator.longValue(), reduced);
+        }
+        return this;
+    }
+
+    /** A fração simplificada; {@code this} se já estava. */
+    Rational reduce() {
+        if (reduced) {
+            return this;
+        }
+        if (bigNumerator == null) {
+            long g = gcd(Math.abs(numerator), denominator);
+            return g <= 1 ? this : new Rational(numerator / g, denominator / g, true);
+        }
+        BigInteger g = bigNumerator.gcd(bigDenominator);
+        if (g.equals(BigInteger.ONE)) {
+            return this;
+        }
+        return new Rational(bigNumerator.divide(g), bigDenominator.divide(g), true).compact();
+    }
+
+    private BigInteger bigNumerator() {
+        return bigNumerator != null ? bigNumerator : BigInteger.valueOf(numerator);
+    }
+
+    private BigInteger bigDenominator() {
+        return bigDenominator != null ? bigDenominator : BigInteger.valueOf(denominator);
+    }
+
+    private long words() {
+        if (bigNumerator == null) {
+            return 1;
+        }
+        return (bigNumerator.bitLength() + bigDenominator.bitLength()) / 30 + 1;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // Só frações cujo denominador tem apenas os fatores 2 e 5 terminam.
+    private static boolean isTerminating(BigInteger denominator) {
+        BigInteger d = denominator.shiftRight(denominator.getLowestSetBit());
+        while (!d.equals(BigInteger.ONE)) {
+            BigInteger[] division = d.divideAndRemainder(FIVE);
+            if (division[1].signum() != 0) {
+                return false;
+            }
+            d = division[0];
+        }
+        return true;
+    }
+}
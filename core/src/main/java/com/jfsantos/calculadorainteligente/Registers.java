@@ -0,0 +1,106 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Registradores da calculadora: as letras A a Z (menos E e X, que são a
+ * constante e a variável das tabelas) e {@code Ans}, o último resultado. M é
+ * um registrador comum, usado como memória por M+, M− e MC.
+ *
+ * Na expressão compilada um registrador é só o índice do slot, então trocar
+ * um valor não exige analisar o texto de novo. A instância é imutável:
+ * {@link #with(int, BigDecimal)} devolve uma cópia, e a thread de avaliação
+ * pode ler a que recebeu sem sincronização. Registradores nunca atribuídos
+ * valem zero.
+ */
+public final class Registers {
+    static final int ANSWER = 26;
+    static final int MEMORY = 'M' - 'A';
+    static final int COUNT = 27;
+    static final String ANSWER_NAME = "Ans";
+
+    public static final Registers EMPTY = new Registers(new BigDecimal[COUNT]);
+
+    private final BigDecimal[] values;
+
+    private Registers(BigDecimal[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Slot do registrador escrito entre {@code start} e {@code end}, ou -1 se
+     * o texto não for nome de registrador.
+     */
+    static int slot(CharSequence source, int start, int end) {
+        if (end - start == 1) {
+            char c = source.charAt(start);
+            if (c >= 'A' && c <= 'Z' && c != 'E' && c != 'X') {
+                return c - 'A';
+            }
+            return -1;
+        }
+        if (end - start == ANSWER_NAME.length()) {
+            for (int i = 0; i < ANSWER_NAME.length(); i++) {
+                if (source.charAt(start + i) != ANSWER_NAME.charAt(i)) {
+                    return -1;
+                }
+            }
+            return ANSWER;
+        }
+        return -1;
+    }
+
+    /** Slot do registrador {@code name}, ou -1. */
+    public static int slot(String name) {
+        return name == null ? -1 : slot(name, 0, name.length());
+    }
+
+    /** Nome do registrador, como aparece na expressão. */
+    public static String name(int slot) {
+        checkSlot(slot);
+        return slot == ANSWER ? ANSWER_NAME : String.valueOf((char) ('A' + slot));
+    }
+
+    public BigDecimal get(int slot) {
+        checkSlot(slot);
+        BigDecimal value = values[slot];
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    public Registers with(int slot, BigDecimal value) {
+        checkSlot(slot);
+        BigDecimal[] copy = values.clone();
+        copy[slot] = value;
+        return new Registers(copy);
+    }
+
+    /**
+     * Valores em texto, um por slot ({@code null} nos nunca atribuídos), para
+     * guardar no estado da tela; {@link #fromStrings} faz o caminho de volta.
+     */
+    public String[] toStrings() {
+        String[] saved = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            saved[i] = values[i] == null ? null : values[i].toString();
+        }
+        return saved;
+    }
+
+    /** Registradores guardados por {@link #toStrings}; {@link #EMPTY} se não houver. */
+    public static Registers fromStrings(String[] saved) {
+        if (saved == null || saved.length != COUNT) {
+            return EMPTY;
+        }
+        BigDecimal[] restored = new BigDecimal[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            restored[i] = saved[i] == null ? null : new BigDecimal(saved[i]);
+        }
+        return new Registers(restored);
+    }
+
+    private static void checkSlot(int slot) {
+        if (slot < 0 || slot >= COUNT || slot == 'E' - 'A' || slot == 'X' - 'A') {
+            throw new IllegalArgumentException("Registrador inválido");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Resultados já calculados, indexados pela forma canônica dos tokens da
+ * expressão: espaços são ignorados e símbolos equivalentes (× e *, ÷ e /,
+ * − e -, vírgula e ponto) viram o mesmo código. Só resultados completos são
+ * guardados; uma avaliação interrompida pelo orçamento ou cancelada nunca
+ * entra no cache. Expressões com registradores também ficam de fora, porque o
+ * resultado muda quando um registrador muda.
+ */
+final class ResultCache {
+    static final int DEFAULT_CAPACITY = 128;
+
+    private final LruCache<String, BigDecimal> results;
+
+    ResultCache(int capacity, LruCache.Eviction eviction) {
+        results = new LruCache<>(capacity, eviction);
+    }
+
+    /**
+     * Forma canônica de {@code expression}: o código de cada token seguido,
+     * nos números, dos dígitos com ponto e hífen. Devolve null se a expressão
+     * usa registradores.
+     */
+    static String key(String expression) {
+        ExpressionLexer.Tokens tokens = ExpressionLexer.tokenize(expression);
+        StringBuilder key = new StringBuilder(expression.length());
+        for (int i = 0; i < tokens.count(); i++) {
+            int code = tokens.code(i);
+            if (code == ExpressionLexer.REGISTER) {
+                return null;
+            }
+            key.append((char) ('a' + code));
+            if (code == ExpressionLexer.NUMBER) {
+                for (int j = tokens.start(i); j < tokens.end(i); j++) {
+                    char c = expression.charAt(j);
+                    key.append(c == ',' ? '.' : c == '−' ? '-' : c);
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    BigDecimal get(String key) {
+        return results.get(key);
+    }
+
+    void put(String key, BigDecimal result) {
+        results.put(key, result);
+    }
+
+    int size() {
+        return results.size();
+    }
+
+    long hitCount() {
+        return results.hitCount();
+    }
+
+    long missCount() {
+        return results.missCount();
+    }
+}
@@ -0,0 +1,13 @@
+package com.jfsantos.calculadorainteligente;
+
+/**
+ * Lançada quando um resultado não caberia no visor ou quando a avaliação
+ * excede o orçamento de um {@link EvaluationContext}.
+ */
+final class ResultTooLargeException extends ArithmeticException {
+    private static final long serialVersionUID = 1L;
+
+    ResultTooLargeException() {
+        super(PowerEngine.TOO_LARGE_MESSAGE);
+    }
+}
@@ -0,0 +1,106 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Aritmética decimal em long: um valor é o par (mantissa, escala), como em
+ * {@link BigDecimal#valueOf(long, int)}. As operações produzem exatamente a
+ * mesma mantissa e a mesma escala que as de {@link Operations} produziriam em
+ * BigDecimal, e lançam ArithmeticException quando o resultado não cabe em um
+ * long, para que quem chama refaça a conta em BigDecimal.
+ */
+final class ScaledDecimal {
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private ScaledDecimal() {
+    }
+
+    /**
+     * Indica se {@code value} pode ser representado por
+     * {@link #mantissa(BigDecimal)} e {@link BigDecimal#scale()}.
+     */
+    static boolean fits(BigDecimal value) {
+        return value.scale() >= 0 && value.unscaledValue().bitLength() < Long.SIZE - 1;
+    }
+
+    static long mantissa(BigDecimal value) {
+        return value.unscaledValue().longValue();
+    }
+
+    /** Escala de a + b e a - b. */
+    static int addScale(int aScale, int bScale) {
+        return Math.max(aScale, bScale);
+    }
+
+    static long add(long a, int aScale, long b, int bScale) {
+        int scale = addScale(aScale, bScale);
+        return checked(Math.addExact(rescale(a, scale - aScale), rescale(b, scale - bScale)));
+    }
+
+    static long subtract(long a, int aScale, long b, int bScale) {
+        return add(a, aScale, -b, bScale);
+    }
+
+    /** Escala de a × b. */
+    static int multiplyScale(int aScale, int bScale) {
+        return aScale + bScale;
+    }
+
+    static long multiply(long a, long b) {
+        return checked(Math.multiplyExact(a, b));
+    }
+
+    /**
+     * a ÷ b com {@link Operations#DIVISION_SCALE} casas, arredondando metade para
+     * longe do zero, como {@code a.divide(b, DIVISION_SCALE, HALF_UP)}.
+     * {@code b} não pode ser zero.
+     */
+    static long divide(long a, int aScale, long b, int bScale) {
+        int shift = Operations.DIVISION_SCALE - aScale + bScale;
+        long numerator = a;
+        long denominator = b;
+        if (shift >= 0) {
+            numerator = rescale(a, shift);
+        } else {
+            denominator = rescale(b, -shift);
+        }
+        long quotient = numerator / denominator;
+        long remainder = Math.abs(numerator % denominator);
+        if (remainder != 0 && remainder >= Math.abs(denominator) - remainder) {
+            quotient += (numerator ^ denominator) < 0 ? -1 : 1;
+        }
+        return checked(quotient);
+    }
+
+    /** Escala de a % b. */
+    static int percentScale(int aScale) {
+        return aScale + Operations.DIVISION_SCALE;
+    }
+
+    /** a × (b ÷ 100), com b ÷ 100 arredondado como em {@link #divide}. */
+    static long percent(long a, long b, int bScale) {
+        return multiply(a, divide(b, bScale, 100, 0));
+    }
+
+    private static long rescale(long value, int digits) {
+        if (digits >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Overflow");
+        }
+        return Math.multiplyExact(value, POWERS_OF_TEN[digits]);
+    }
+
+    // Long.MIN_VALUE não tem oposto em long; tratá-lo como estouro simplifica os sinais.
+    private static long checked(long value) {
+        if (value == Long.MIN_VALUE) {
+            throw new ArithmeticException("Overflow");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,127 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.util.Locale;
+
+/**
+ * Separa a frase ditada em palavras numa única passada: cada caractere passa
+ * por uma tabela que já o deixa em minúscula e sem acento, os espaços em
+ * branco separam as palavras e cada palavra é procurada no {@link Lexicon}
+ * pelo trecho que ocupa, sem criar uma String por palavra.
+ *
+ * O resultado é o mesmo de {@code toLowerCase(Locale.ROOT)}, seguido de
+ * tirar os acentos do português e de separar nos espaços em branco.
+ */
+final class SpeechLexer {
+    // Minúscula sem acento de cada caractere Latin-1.
+    private static final char[] FOLD = new char[256];
+
+    static {
+        String accented = "àáâãèéêìíîòóôõùúûç";
+        String plain = "aaaaeeeiiioooouuuc";
+        for (int c = 0; c < FOLD.length; c++) {
+            char lower = Character.toLowerCase((char) c);
+            int accent = accented.indexOf(lower);
+            FOLD[c] = accent >= 0 ? plain.charAt(accent) : lower;
+        }
+    }
+
+    private SpeechLexer() {
+    }
+
+    static SpeechTokens lex(String voiceText, Lexicon lexicon) {
+        String source = voiceText;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) >= FOLD.length) {
+                // Fora do Latin-1 a minúscula pode mudar o tamanho do texto ("İ").
+                source = source.toLowerCase(Locale.ROOT);
+                break;
+            }
+        }
+
+        int length = source.length();
+        char[] folded = new char[length];
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(i);
+            folded[i] = c < FOLD.length ? FOLD[c] : c;
+        }
+        String text = new String(folded);
+
+        int capacity = length / 2 + 1;
+        int[] ids = new int[capacity];
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+        int size = 0;
+        int i = 0;
+        while (i < length) {
+            while (i < length && isSeparator(folded[i])) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !isSeparator(folded[i])) {
+                i++;
+            }
+            int end = i;
+            // Como String.trim: caracteres de controle nas pontas não contam.
+            while (start < end && folded[start] <= ' ') {
+                start++;
+            }
+            while (end > start && folded[end - 1] <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                ids[size] = lexicon.id(text, start, end);
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+        }
+        return new SpeechTokens(text, ids, starts, ends, size);
+    }
+
+    /**
+     * {@code word} em minúscula e sem acento, como as palavras de
+     * {@link #lex}; para as chaves do vocabulário, que não têm espaços em
+     * branco nem caracteres fora do Latin-1 com minúscula.
+     */
+    static String fold(String word) {
+        char[] folded = new char[word.length()];
+        for (int i = 0; i < folded.length; i++) {
+            char c = word.charAt(i);
+            folded[i] = c < FOLD.length ? FOLD[c] : c;
+        }
+        return new String(folded);
+    }
+
+    /** Troca cada sequência de espaços em branco por um espaço, como {@code replaceAll("\\s+", " ")}. */
+    static String collapseWhitespace(String text) {
+        StringBuilder collapsed = null;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (!isSeparator(c)) {
+                if (collapsed != null) {
+                    collapsed.append(c);
+                }
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && isSeparator(text.charAt(end))) {
+                end++;
+            }
+            if (collapsed == null) {
+                if (c == ' ' && end == i + 1) {
+                    continue;
+                }
+                collapsed = new StringBuilder(length).append(text, 0, i);
+            }
+            collapsed.append(' ');
+            i = end - 1;
+        }
+        return collapsed == null ? text : collapsed.toString();
+    }
+
+    // Os mesmos caracteres de \s nas expressões regulares.
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,61 @@
+package com.jfsantos.calculadorainteligente;
+
+/**
+ * Palavras de uma frase ditada, como montadas por {@link SpeechLexer}: o id
+ * de cada palavra no {@link Lexicon} ({@link Lexicon#UNKNOWN} para números
+ * escritos e palavras desconhecidas) e o trecho que ela ocupa no texto já
+ * normalizado. A String de uma palavra só é criada quando pedida.
+ */
+final class SpeechTokens {
+    private final String text;
+    private final int[] ids;
+    private final int[] starts;
+    private final int[] ends;
+    private final int size;
+
+    SpeechTokens(String text, int[] ids, int[] starts, int[] ends, int size) {
+        this.text = text;
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Ids das palavras; só as {@link #size()} primeiras posições valem. */
+    int[] ids() {
+        return ids;
+    }
+
+    int id(int index) {
+        return ids[index];
+    }
+
+    /** Texto normalizado de onde as palavras foram tiradas. */
+    String text() {
+        return text;
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int end(int index) {
+        return ends[index];
+    }
+
+    int length(int index) {
+        return ends[index] - starts[index];
+    }
+
+    char charAt(int index, int offset) {
+        return text.charAt(starts[index] + offset);
+    }
+
+    String word(int index) {
+        return text.substring(starts[index], ends[index]);
+    }
+}
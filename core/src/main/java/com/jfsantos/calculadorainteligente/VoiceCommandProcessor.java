@@ -3,280 +3,36 @@ package com.jfsantos.calculadorainteligente;
 import java.math.BigDecimal;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
 
 public class VoiceCommandProcessor {
-    private static final Map<String, String> numberWords = new HashMap<>();
-    private static final Map<String, String> operatorWords = new HashMap<>();
-    private static final Map<String, ConstantValue> constantWords = new HashMap<>();
-    private static final Set<String> fillerWords = new HashSet<>(Arrays.asList(
-            "e", "da", "de", "do", "das", "dos", "com", "por", "a", "o", "os", "as", "ao", "aos", "uma", "um"
-    ));
-
-    static {
-        numberWords.put("zero", "0");
-        numberWords.put("um", "1");
-        numberWords.put("uma", "1");
-        numberWords.put("dois", "2");
-        numberWords.put("duas", "2");
-    operatorWords.put("+", "+");
-        numberWords.put("três", "3");
-        numberWords.put("tres", "3");
-        numberWords.put("quatro", "4");
-        numberWords.put("cinco", "5");
-        numberWords.put("seis", "6");
-        numberWords.put("sete", "7");
-        numberWords.put("oito", "8");
-        numberWords.put("nove", "9");
-    operatorWords.put("-", "-");
-    operatorWords.put("−", "-");
-
-        numberWords.put("dez", "10");
-        numberWords.put("onze", "11");
-        numberWords.put("doze", "12");
-        numberWords.put("treze", "13");
-        numberWords.put("quatorze", "14");
-        numberWords.put("catorze", "14");
-        numberWords.put("quinze", "15");
-        numberWords.put("dezesseis", "16");
-    operatorWords.put("×", "×");
-        numberWords.put("dezasseis", "16");
-        numberWords.put("dezessete", "17");
-        numberWords.put("dezassete", "17");
-        numberWords.put("dezoito", "18");
-        numberWords.put("dezenove", "19");
-        numberWords.put("dezanove", "19");
-
-        numberWords.put("vinte", "20");
-        numberWords.put("trinta", "30");
-        numberWords.put("quarenta", "40");
-        numberWords.put("cinquenta", "50");
-        numberWords.put("sessenta", "60");
-        numberWords.put("setenta", "70");
-    operatorWords.put("/", "÷");
-    operatorWords.put("÷", "÷");
-        numberWords.put("oitenta", "80");
-        numberWords.put("noventa", "90");
-
-        numberWords.put("cem", "100");
-        numberWords.put("cento", "100");
-        numberWords.put("duzentos", "200");
-        numberWords.put("duzentas", "200");
-        numberWords.put("trezentos", "300");
-        numberWords.put("trezentas", "300");
-        numberWords.put("quatrocentos", "400");
-        numberWords.put("quatrocentas", "400");
-        numberWords.put("quinhentos", "500");
-        numberWords.put("quinhentas", "500");
-        numberWords.put("seiscentos", "600");
-        numberWords.put("seiscentas", "600");
-        numberWords.put("setecentos", "700");
-        numberWords.put("setecentas", "700");
-        numberWords.put("oitocentos", "800");
-        numberWords.put("oitocentas", "800");
-        numberWords.put("novecentos", "900");
-        numberWords.put("novecentas", "900");
-
-        numberWords.put("mil", "1000");
-        numberWords.put("milhao", "1000000");
-        numberWords.put("milhão", "1000000");
-    numberWords.put("milhoes", "1000000");
-    numberWords.put("milhões", "1000000");
-        numberWords.put("bilhao", "1000000000");
-        numberWords.put("bilhão", "1000000000");
-    numberWords.put("bilhoes", "1000000000");
-    numberWords.put("bilhões", "1000000000");
-        numberWords.put("pi", "3.1415926535");
-        numberWords.put("euler", "2.7182818284");
-
-        numberWords.put("meia", "0.5");
-        numberWords.put("meio", "0.5");
-        numberWords.put("metade", "0.5");
-
-        operatorWords.put("mais", "+");
-        operatorWords.put("adição", "+");
-        operatorWords.put("adicao", "+");
-        operatorWords.put("adicionar", "+");
-        operatorWords.put("somar", "+");
-        operatorWords.put("soma", "+");
-        operatorWords.put("plus", "+");
-
-        operatorWords.put("menos", "-");
-        operatorWords.put("subtração", "-");
-        operatorWords.put("subtracao", "-");
-        operatorWords.put("subtrair", "-");
-        operatorWords.put("subtraia", "-");
-        operatorWords.put("subitrai", "-");
-        operatorWords.put("minus", "-");
-
-        operatorWords.put("vezes", "×");
-        operatorWords.put("multiplicação", "×");
-        operatorWords.put("multiplicacao", "×");
-        operatorWords.put("multiplicar", "×");
-        operatorWords.put("multiplique", "×");
-        operatorWords.put("multiplica", "×");
-        operatorWords.put("x", "×");
-        operatorWords.put("*", "×");
-        operatorWords.put("times", "×");
-
-        operatorWords.put("dividir", "÷");
-        operatorWords.put("divisão", "÷");
-        operatorWords.put("divisao", "÷");
-        operatorWords.put("divida", "÷");
-        operatorWords.put("dividido", "÷");
-        operatorWords.put("dividida", "÷");
-        operatorWords.put("dividido por", "÷");
-        operatorWords.put("dividida por", "÷");
-        operatorWords.put("sobre", "÷");
-        operatorWords.put("divide", "÷");
-        operatorWords.put("slash", "÷");
-        operatorWords.put("barra", "÷");
-
-    operatorWords.put("por cento", "%");
-    operatorWords.put("por cento de", "%");
-    operatorWords.put("por cento do", "%");
-    operatorWords.put("por cento da", "%");
-    operatorWords.put("por cento dos", "%");
-    operatorWords.put("por cento das", "%");
-    operatorWords.put("porcento", "%");
-    operatorWords.put("porcento de", "%");
-    operatorWords.put("porcento do", "%");
-    operatorWords.put("porcento da", "%");
-    operatorWords.put("porcento dos", "%");
-    operatorWords.put("porcento das", "%");
-    operatorWords.put("porcentagem", "%");
-    operatorWords.put("percentual", "%");
-    operatorWords.put("percent", "%");
-
-        operatorWords.put("abre parenteses", "(");
-        operatorWords.put("abre parentese", "(");
-        operatorWords.put("abre parênteses", "(");
-        operatorWords.put("abre parêntese", "(");
-        operatorWords.put("fecha parenteses", ")");
-        operatorWords.put("fecha parentese", ")");
-        operatorWords.put("fecha parênteses", ")");
-        operatorWords.put("fecha parêntese", ")");
-
-        operatorWords.put("raiz quadrada", "√");
-        operatorWords.put("raiz", "√");
-        operatorWords.put("radiciacao", "√");
-        operatorWords.put("radiciação", "√");
-        operatorWords.put("seno", "sin");
-        operatorWords.put("sin", "sin");
-        operatorWords.put("coseno", "cos");
-        operatorWords.put("cosseno", "cos");
-        operatorWords.put("cos", "cos");
-        operatorWords.put("tangente", "tan");
-        operatorWords.put("tan", "tan");
-        operatorWords.put("logaritmo", "log");
-        operatorWords.put("log", "log");
-        operatorWords.put("log natural", "ln");
-        operatorWords.put("ln", "ln");
-        operatorWords.put("potencia", "^");
-        operatorWords.put("potência", "^");
-        operatorWords.put("elevado a", "^");
-        operatorWords.put("ao quadrado", "^2");
-        operatorWords.put("ao cubo", "^3");
-        operatorWords.put("fatorial", "!");
-
-        operatorWords.put("igual", "=");
-        operatorWords.put("é igual", "=");
-        operatorWords.put("eh igual", "=");
-        operatorWords.put("resultado", "=");
-        operatorWords.put("calcular", "=");
-        operatorWords.put("calcula", "=");
-        operatorWords.put("calculo", "=");
-        operatorWords.put("enter", "=");
-        operatorWords.put("equals", "=");
-        operatorWords.put("limpar", "C");
-        operatorWords.put("limpe", "C");
-        operatorWords.put("limpa", "C");
-        operatorWords.put("resetar", "C");
-        operatorWords.put("reset", "C");
-        operatorWords.put("zerar", "C");
-        operatorWords.put("zera", "C");
-        operatorWords.put("apagar", "DEL");
-        operatorWords.put("apague", "DEL");
-        operatorWords.put("apaga", "DEL");
-        operatorWords.put("deletar", "DEL");
-        operatorWords.put("delete", "DEL");
-        operatorWords.put("remove", "DEL");
-
-        addNormalizedOperators();
-        initConstantWords();
-    }
-
-    private static void addNormalizedOperators() {
-        Map<String, String> toAdd = new HashMap<>();
-        for (Map.Entry<String, String> entry : operatorWords.entrySet()) {
-            String key = entry.getKey();
-            String normalized = key
-                    .replace("à", "a").replace("á", "a").replace("â", "a").replace("ã", "a")
-                    .replace("è", "e").replace("é", "e").replace("ê", "e")
-                    .replace("ì", "i").replace("í", "i").replace("î", "i")
-                    .replace("ò", "o").replace("ó", "o").replace("ô", "o").replace("õ", "o")
-                    .replace("ù", "u").replace("ú", "u").replace("û", "u")
-                    .replace("ç", "c");
-            if (!normalized.equals(key) && !operatorWords.containsKey(normalized)) {
-                toAdd.put(normalized, entry.getValue());
-            }
-        }
-        operatorWords.putAll(toAdd);
-    }
-
-    private static void initConstantWords() {
-        constantWords.clear();
-
-        addConstant("pi", "π", "3.141592653589793");
-        addConstant("constante pi", "π", "3.141592653589793");
-        addConstant("numero pi", "π", "3.141592653589793");
-        addConstant("valor de pi", "π", "3.141592653589793");
-
-        addConstant("numero e", "e", "2.718281828459045");
-        addConstant("constante e", "e", "2.718281828459045");
-        addConstant("numero de euler", "e", "2.718281828459045");
-        addConstant("constante de euler", "e", "2.718281828459045");
-        addConstant("numero neperiano", "e", "2.718281828459045");
-        addConstant("neperiano", "e", "2.718281828459045");
-        addConstant("euler", "e", "2.718281828459045");
-
-        addConstant("radius", "RAD", "0.017453292519943295");
-        addConstant("rad", "RAD", "0.017453292519943295");
-        addConstant("radiano", "RAD", "0.017453292519943295");
-        addConstant("radianos", "RAD", "0.017453292519943295");
-        addConstant("constante radiano", "RAD", "0.017453292519943295");
-        addConstant("constante radius", "RAD", "0.017453292519943295");
-    }
-
-    private static void addConstant(String phrase, String ui, String math) {
-        if (phrase == null || ui == null || math == null) {
-            return;
-        }
-        String normalized = normalizeText(phrase);
-        if (normalized.isEmpty()) {
-            return;
-        }
-        constantWords.put(normalized, new ConstantValue(ui, math));
+    /**
+     * Monta o vocabulário de voz em uma thread de fundo; chamada na abertura
+     * do app para que o primeiro cálculo ditado não espere por ele.
+     */
+    public static Thread preloadInBackground() {
+        return VoiceLexicon.loadInBackground();
     }
 
     public static ProcessResult processVoiceCommandDetailed(String voiceText) {
         if (voiceText == null) {
             return ProcessResult.empty();
         }
-        String processed = voiceText.toLowerCase(Locale.ROOT).trim();
-        if (processed.isEmpty()) {
+        return SpeechExpressionParser.parse(SpeechLexer.lex(voiceText, VoiceLexicon.get().words()), false);
+    }
+
+    /**
+     * Como {@link #processVoiceCommandDetailed(String)}, mas para uma função de
+     * x ("x ao quadrado mais dois x"): "x" e "xis" são a variável, não o sinal
+     * de vezes, e um número seguido da variável é multiplicado por ela.
+     */
+    public static ProcessResult processFunctionCommandDetailed(String voiceText) {
+        if (voiceText == null) {
             return ProcessResult.empty();
         }
-        processed = normalizeText(processed);
-        return SpeechExpressionParser.parse(processed);
+        return SpeechExpressionParser.parse(SpeechLexer.lex(voiceText, VoiceLexicon.get().words()), true);
     }
 
     public static String processVoiceCommand(String voiceText) {
@@ -287,6 +43,24 @@ public class VoiceCommandProcessor {
         if (result.getCommand() == CommandType.DELETE) {
             return "DELETE";
         }
+        if (result.getCommand() == CommandType.MEMORY_CLEAR) {
+            return "MC";
+        }
+        if (result.getCommand() == CommandType.EXACT_MODE) {
+            return "EXACT";
+        }
+        if (result.getCommand() == CommandType.DECIMAL_MODE) {
+            return "DECIMAL";
+        }
+        if (result.getCommand() == CommandType.STORE) {
+            return withExpression(result, "STO " + result.getRegister());
+        }
+        if (result.getCommand() == CommandType.MEMORY_ADD) {
+            return withExpression(result, "M+");
+        }
+        if (result.getCommand() == CommandType.MEMORY_SUBTRACT) {
+            return withExpression(result, "M−");
+        }
         if (result.getUiTokens().isEmpty()) {
             return "";
         }
@@ -297,6 +71,10 @@ public class VoiceCommandProcessor {
         return expression;
     }
 
+    private static String withExpression(ProcessResult result, String command) {
+        return result.getUiTokens().isEmpty() ? command : result.getUiExpression() + " " + command;
+    }
+
     public static boolean isCalculationCommand(String expression) {
         if (expression == null || expression.isEmpty()) {
             return false;
@@ -313,7 +91,7 @@ public class VoiceCommandProcessor {
             return "";
         }
         expression = expression.replace("=", "").trim();
-        return expression.replaceAll("\\s+", " ");
+        return SpeechLexer.collapseWhitespace(expression);
     }
 
     public static boolean containsOperator(String text) {
@@ -331,18 +109,6 @@ public class VoiceCommandProcessor {
         return expression.replace("×", "*").replace("÷", "/");
     }
 
-    static String normalizeText(String text) {
-        if (text == null) return "";
-        String normalized = text.replaceAll("\\s+", " ");
-        normalized = normalized.replace("à", "a").replace("á", "a").replace("â", "a").replace("ã", "a")
-                .replace("è", "e").replace("é", "e").replace("ê", "e")
-                .replace("ì", "i").replace("í", "i").replace("î", "i")
-                .replace("ò", "o").replace("ó", "o").replace("ô", "o").replace("õ", "o")
-                .replace("ù", "u").replace("ú", "u").replace("û", "u")
-                .replace("ç", "c");
-        return normalized.trim();
-    }
-
     static class ParseResult {
         final String uiString;
         final String mathString;
@@ -355,93 +121,144 @@ public class VoiceCommandProcessor {
         }
     }
 
-    static ParseResult parseNumber(String[] words, int i) {
+    /**
+     * Número dito por extenso a partir da palavra {@code i}. A soma é feita em
+     * long, como em {@link ScaledDecimal}; só um número que não cabe em long
+     * é somado de novo em BigDecimal.
+     */
+    static ParseResult parseNumber(SpeechTokens words, int i) {
+        VoiceLexicon lexicon = VoiceLexicon.get();
         int idx = i;
-        BigDecimal total = BigDecimal.ZERO;
-        BigDecimal current = BigDecimal.ZERO;
+        long total = 0;
+        int totalScale = 0;
+        long current = 0;
+        int currentScale = 0;
+        // Grupos já fechados por mil, milhão e bilhão; zero quando ainda não há.
+        long thousands = 0;
+        int thousandsScale = 0;
+        long millions = 0;
+        int millionsScale = 0;
+        long billions = 0;
+        int billionsScale = 0;
+        boolean overflow = false;
         boolean foundAny = false;
 
-        if (idx >= words.length) {
+        if (idx >= words.size()) {
             return null;
         }
 
-        boolean startsWithDecimal = isDecimalMarker(words[idx]);
+        boolean startsWithDecimal = lexicon.is(words.id(idx), VoiceLexicon.DECIMAL_MARKER);
 
         if (!startsWithDecimal) {
-            while (idx < words.length) {
-                String w = words[idx];
-                String wNormalized = normalizeText(w);
-                if (isDecimalMarker(wNormalized)) {
+            while (idx < words.size()) {
+                int w = words.id(idx);
+                if (lexicon.is(w, VoiceLexicon.DECIMAL_MARKER)) {
                     break;
                 }
 
-                if (numberWords.containsKey(wNormalized)) {
+                if (lexicon.is(w, VoiceLexicon.NUMBER)) {
                     foundAny = true;
-                    BigDecimal val = new BigDecimal(numberWords.get(wNormalized));
-
-                    if (val.scale() > 0) {
-                        current = current.add(val);
-                        idx++;
-                        continue;
-                    }
-
-                    int intVal = val.intValue();
-                    if (intVal >= 1000) {
-                        BigDecimal base = total.add(current);
-                        if (base.compareTo(BigDecimal.ZERO) == 0) {
-                            base = BigDecimal.ONE;
+                    if (!overflow) {
+                        try {
+                            if (lexicon.is(w, VoiceLexicon.MULTIPLIER)) {
+                                // "trezentos mil" fecha um grupo abaixo de "dois milhões"; "mil milhões"
+                                // multiplica o grupo anterior, que tem multiplicador menor ou igual.
+                                long multiplier = lexicon.numberValue(w);
+                                int group = groupIndex(multiplier);
+                                long base = ScaledDecimal.add(current, currentScale, thousands, thousandsScale);
+                                int baseScale = ScaledDecimal.addScale(currentScale, thousandsScale);
+                                thousands = 0;
+                                thousandsScale = 0;
+                                if (group >= 1) {
+                                    base = ScaledDecimal.add(base, baseScale, millions, millionsScale);
+                                    baseScale = ScaledDecimal.addScale(baseScale, millionsScale);
+                                    millions = 0;
+                                    millionsScale = 0;
+                                }
+                                if (group >= 2) {
+                                    base = ScaledDecimal.add(base, baseScale, billions, billionsScale);
+                                    baseScale = ScaledDecimal.addScale(baseScale, billionsScale);
+                                    billions = 0;
+                                    billionsScale = 0;
+                                }
+                                if (base == 0) {
+                                    base = 1;
+                                    baseScale = 0;
+                                }
+                                long value = ScaledDecimal.multiply(base, multiplier);
+                                if (group == 0) {
+                                    thousands = value;
+                                    thousandsScale = baseScale;
+                                } else if (group == 1) {
+                                    millions = value;
+                                    millionsScale = baseScale;
+                                } else {
+                                    billions = value;
+                                    billionsScale = baseScale;
+                                }
+                                current = 0;
+                                currentScale = 0;
+                            } else {
+                                current = ScaledDecimal.add(current, currentScale, lexicon.numberValue(w), lexicon.numberScale(w));
+                                currentScale = ScaledDecimal.addScale(currentScale, lexicon.numberScale(w));
+                            }
+                        } catch (ArithmeticException e) {
+                            overflow = true;
                         }
-                        total = base.multiply(val);
-                        current = BigDecimal.ZERO;
-                    } else {
-                        current = current.add(val);
                     }
                     idx++;
                     continue;
                 }
 
-                if (fillerWords.contains(wNormalized)) {
+                if (lexicon.is(w, VoiceLexicon.FILLER)) {
                     if (startsWithOperator(words, idx)) {
                         break;
                     }
                     idx++;
                     continue;
                 }
-
-                if (!numberWords.containsKey(wNormalized)) {
-                    break;
+                break;
+            }
+            if (!overflow) {
+                try {
+                    total = ScaledDecimal.add(current, currentScale, thousands, thousandsScale);
+                    totalScale = ScaledDecimal.addScale(currentScale, thousandsScale);
+                    total = ScaledDecimal.add(total, totalScale, millions, millionsScale);
+                    totalScale = ScaledDecimal.addScale(totalScale, millionsScale);
+                    total = ScaledDecimal.add(total, totalScale, billions, billionsScale);
+                    totalScale = ScaledDecimal.addScale(totalScale, billionsScale);
+                } catch (ArithmeticException e) {
+                    overflow = true;
                 }
             }
-            total = total.add(current);
         }
 
         if (!foundAny && !startsWithDecimal) {
             return null;
         }
 
-        if (idx < words.length && isDecimalMarker(words[idx])) {
+        String whole = overflow ? bigNumber(words, i, idx).toPlainString() : toPlainString(total, totalScale);
+        if (idx < words.size() && lexicon.is(words.id(idx), VoiceLexicon.DECIMAL_MARKER)) {
             idx++;
             StringBuilder fractional = new StringBuilder();
-            while (idx < words.length) {
-                String w = words[idx];
-                String normalized = normalizeText(w);
-                if (isDecimalMarker(normalized) || operatorWords.containsKey(normalized)) {
+            while (idx < words.size()) {
+                int w = words.id(idx);
+                if (lexicon.is(w, VoiceLexicon.DECIMAL_MARKER | VoiceLexicon.OPERATOR_WORD)) {
                     break;
                 }
-                if (numberWords.containsKey(normalized)) {
-                    BigDecimal val = new BigDecimal(numberWords.get(normalized));
-                    if (val.scale() > 0) {
+                if (lexicon.is(w, VoiceLexicon.NUMBER)) {
+                    if (lexicon.numberScale(w) > 0) {
                         break;
                     }
-                    fractional.append(val.toPlainString().replace(".0", ""));
+                    fractional.append(lexicon.numberValue(w));
                     idx++;
                     continue;
-                } else if (normalized.matches("\\d+")) {
-                    fractional.append(normalized);
+                } else if (w == Lexicon.UNKNOWN && isDigits(words.text(), words.start(idx), words.end(idx))) {
+                    fractional.append(words.word(idx));
                     idx++;
                     continue;
                 }
-                if (fillerWords.contains(normalized)) {
+                if (lexicon.is(w, VoiceLexicon.FILLER)) {
                     if (startsWithOperator(words, idx)) {
                         break;
                     }
@@ -451,7 +268,6 @@ public class VoiceCommandProcessor {
                     break;
                 }
             }
-            String whole = total.toPlainString();
             String math = fractional.length() == 0 ? whole : whole + "." + fractional;
             String ui = fractional.length() == 0 ? whole.replace('.', ',') : (whole.replace('.', ',') + "," + fractional);
             return new ParseResult(ui, math, idx);
@@ -461,28 +277,74 @@ public class VoiceCommandProcessor {
             return null;
         }
 
-        String math = total.toPlainString();
-        String ui = math.replace('.', ',');
-        return new ParseResult(ui, math, idx);
+        return new ParseResult(whole.replace('.', ','), whole, idx);
     }
 
-    private static ParseResult buildNumericLiteralResult(BigDecimal baseValue, String[] words, int nextIndex) {
-        BigDecimal value = baseValue;
-        int idx = nextIndex;
-
-        while (idx < words.length) {
-            String nextWord = words[idx];
-            if (nextWord == null) {
-                break;
-            }
-
-            String nextNormalized = normalizeText(nextWord);
-            if (nextNormalized.isEmpty()) {
-                idx++;
+    /** A soma de {@link #parseNumber} em BigDecimal, para as palavras de {@code from} a {@code to}. */
+    private static BigDecimal bigNumber(SpeechTokens words, int from, int to) {
+        VoiceLexicon lexicon = VoiceLexicon.get();
+        BigDecimal thousands = BigDecimal.ZERO;
+        BigDecimal millions = BigDecimal.ZERO;
+        BigDecimal billions = BigDecimal.ZERO;
+        BigDecimal current = BigDecimal.ZERO;
+        for (int idx = from; idx < to; idx++) {
+            int w = words.id(idx);
+            if (!lexicon.is(w, VoiceLexicon.NUMBER)) {
                 continue;
             }
+            if (lexicon.is(w, VoiceLexicon.MULTIPLIER)) {
+                long multiplier = lexicon.numberValue(w);
+                int group = groupIndex(multiplier);
+                BigDecimal base = current.add(thousands);
+                thousands = BigDecimal.ZERO;
+                if (group >= 1) {
+                    base = base.add(millions);
+                    millions = BigDecimal.ZERO;
+                }
+                if (group >= 2) {
+                    base = base.add(billions);
+                    billions = BigDecimal.ZERO;
+                }
+                if (base.signum() == 0) {
+                    base = BigDecimal.ONE;
+                }
+                BigDecimal value = base.multiply(BigDecimal.valueOf(multiplier));
+                if (group == 0) {
+                    thousands = value;
+                } else if (group == 1) {
+                    millions = value;
+                } else {
+                    billions = value;
+                }
+                current = BigDecimal.ZERO;
+            } else {
+                current = current.add(BigDecimal.valueOf(lexicon.numberValue(w), lexicon.numberScale(w)));
+            }
+        }
+        return current.add(thousands).add(millions).add(billions);
+    }
+
+    /**
+     * Grupo fechado pelo multiplicador: 0 para mil, 1 para milhão, 2 para
+     * bilhão. Um multiplicador junta à sua base os grupos de índice menor ou
+     * igual, como em "mil milhões".
+     */
+    private static int groupIndex(long multiplier) {
+        return multiplier >= 1000000000L ? 2 : multiplier >= 1000000L ? 1 : 0;
+    }
 
-            if (fillerWords.contains(nextNormalized)) {
+    private static String toPlainString(long mantissa, int scale) {
+        return scale == 0 ? Long.toString(mantissa) : BigDecimal.valueOf(mantissa, scale).toPlainString();
+    }
+
+    private static ParseResult buildNumericLiteralResult(BigDecimal baseValue, SpeechTokens words, int nextIndex) {
+        VoiceLexicon lexicon = VoiceLexicon.get();
+        BigDecimal value = baseValue;
+        int idx = nextIndex;
+
+        while (idx < words.size()) {
+            int next = words.id(idx);
+            if (lexicon.is(next, VoiceLexicon.FILLER)) {
                 if (startsWithOperator(words, idx)) {
                     break;
                 }
@@ -490,14 +352,10 @@ public class VoiceCommandProcessor {
                 continue;
             }
 
-            String multiplierString = numberWords.get(nextNormalized);
-            if (multiplierString != null) {
-                BigDecimal multiplier = new BigDecimal(multiplierString);
-                if (multiplier.scale() == 0 && multiplier.compareTo(BigDecimal.valueOf(1000)) >= 0) {
-                    value = value.multiply(multiplier);
-                    idx++;
-                    continue;
-                }
+            if (lexicon.is(next, VoiceLexicon.MULTIPLIER)) {
+                value = value.multiply(BigDecimal.valueOf(lexicon.numberValue(next)));
+                idx++;
+                continue;
             }
 
             break;
@@ -512,19 +370,12 @@ public class VoiceCommandProcessor {
         return new ParseResult(uiValue, mathValue, idx);
     }
 
-    static ParseResult parseNumericLiteral(String[] words, int i) {
+    static ParseResult parseNumericLiteral(SpeechTokens words, int i) {
+        VoiceLexicon lexicon = VoiceLexicon.get();
         int idx = i;
-        while (idx < words.length) {
-            String word = words[idx];
-            if (word == null) {
-                break;
-            }
-            String normalized = normalizeText(word);
-            if (normalized.isEmpty()) {
-                idx++;
-                continue;
-            }
-            if (fillerWords.contains(normalized)) {
+        while (idx < words.size()) {
+            int w = words.id(idx);
+            if (lexicon.is(w, VoiceLexicon.FILLER)) {
                 if (startsWithOperator(words, idx)) {
                     break;
                 }
@@ -532,9 +383,11 @@ public class VoiceCommandProcessor {
                 continue;
             }
 
-            if (normalized.matches("\\d+([,.]\\d+)?") ||
-                    isThousandGrouping(normalized) ||
-                    isThousandGroupingWithDecimal(normalized)) {
+            String text = words.text();
+            if (w == Lexicon.UNKNOWN && (isDecimalLiteral(text, words.start(idx), words.end(idx)) ||
+                    isThousandGrouping(text, words.start(idx), words.end(idx)) ||
+                    isThousandGroupingWithDecimal(text, words.start(idx), words.end(idx)))) {
+                String normalized = words.word(idx);
                 String math;
                 boolean hasDot = normalized.contains(".");
                 boolean hasComma = normalized.contains(",");
@@ -556,35 +409,22 @@ public class VoiceCommandProcessor {
         return null;
     }
 
-    private static boolean startsWithOperator(String[] words, int index) {
-        if (words == null || index < 0 || index >= words.length) {
+    private static boolean startsWithOperator(SpeechTokens words, int index) {
+        VoiceLexicon lexicon = VoiceLexicon.get();
+        if (index < 0 || index >= words.size()) {
             return false;
         }
-        int max = Math.min(words.length, index + 3);
-        for (int end = max; end > index; end--) {
-            StringBuilder candidate = new StringBuilder();
-            for (int i = index; i < end; i++) {
-                if (i > index) {
-                    candidate.append(' ');
-                }
-                candidate.append(words[i]);
-            }
-            if (operatorWords.containsKey(candidate.toString())) {
-                return true;
-            }
-        }
-        return false;
+        return lexicon.operators().match(words, index) != PhraseTrie.NO_MATCH;
     }
 
-    static boolean isDecimalMarker(String word) {
-        if (word == null) return false;
-        String normalized = normalizeText(word);
-        return normalized.equals("virgula") || normalized.equals("vírgula") || normalized.equals("ponto") ||
-                normalized.equals("decimal") || normalized.equals("dot") || normalized.equals("comma");
+    /**
+     * STORE, MEMORY_ADD e MEMORY_SUBTRACT se aplicam ao valor da expressão
+     * ditada antes do comando (ou ao valor atual, se não houver expressão).
+     */
+    public enum CommandType {
+        NONE, CLEAR, DELETE, STORE, MEMORY_ADD, MEMORY_SUBTRACT, MEMORY_CLEAR, EXACT_MODE, DECIMAL_MODE
     }
 
-    public enum CommandType { NONE, CLEAR, DELETE }
-
     public static final class ProcessResult {
         private static final ProcessResult EMPTY = new ProcessResult(CommandType.NONE, false, Collections.emptyList(), "");
 
@@ -592,12 +432,19 @@ public class VoiceCommandProcessor {
         private final boolean shouldEvaluate;
         private final List<String> uiTokens;
         private final String mathExpression;
+        private final String register;
 
         ProcessResult(CommandType command, boolean shouldEvaluate, List<String> uiTokens, String mathExpression) {
+            this(command, shouldEvaluate, uiTokens, mathExpression, null);
+        }
+
+        ProcessResult(CommandType command, boolean shouldEvaluate, List<String> uiTokens, String mathExpression,
+                      String register) {
             this.command = command;
             this.shouldEvaluate = shouldEvaluate;
             this.uiTokens = uiTokens;
             this.mathExpression = mathExpression;
+            this.register = register;
         }
 
         static ProcessResult empty() {
@@ -623,6 +470,11 @@ public class VoiceCommandProcessor {
         public String getMathExpression() {
             return mathExpression;
         }
+
+        /** Registrador de destino de {@link CommandType#STORE}, como "A"; null nos demais. */
+        public String getRegister() {
+            return register;
+        }
     }
 
     private enum TokenType {
@@ -634,7 +486,9 @@ public class VoiceCommandProcessor {
         PAREN_CLOSE,
         PERCENT,
         FACTORIAL,
-        CONSTANT
+        CONSTANT,
+        VARIABLE,
+        REGISTER
     }
 
     private enum FunctionType {
@@ -673,6 +527,22 @@ public class VoiceCommandProcessor {
             prevType = TokenType.CONSTANT;
         }
 
+        void addVariable() {
+            maybeInsertImplicitMultiplication();
+            mathTokens.add("x");
+            mathTokenTypes.add(TokenType.VARIABLE);
+            uiTokens.add("x");
+            prevType = TokenType.VARIABLE;
+        }
+
+        void addRegister(String name) {
+            maybeInsertImplicitMultiplication();
+            mathTokens.add(name);
+            mathTokenTypes.add(TokenType.REGISTER);
+            uiTokens.add(name);
+            prevType = TokenType.REGISTER;
+        }
+
         void addOperator(String math, String ui) {
             if (mathTokens.isEmpty()) {
                 if ("-".equals(math)) {
@@ -710,7 +580,8 @@ public class VoiceCommandProcessor {
             if (mathTokens.isEmpty()) {
                 return;
             }
-            if (prevType != TokenType.NUMBER && prevType != TokenType.PAREN_CLOSE && prevType != TokenType.CONSTANT) {
+            if (prevType != TokenType.NUMBER && prevType != TokenType.PAREN_CLOSE && prevType != TokenType.CONSTANT
+                    && prevType != TokenType.VARIABLE && prevType != TokenType.REGISTER) {
                 return;
             }
             mathTokens.add("*0.01");
@@ -814,7 +685,8 @@ public class VoiceCommandProcessor {
             }
             TokenType last = lastMathTokenType();
             if (last == TokenType.NUMBER || last == TokenType.PAREN_CLOSE || last == TokenType.PERCENT ||
-                    last == TokenType.FACTORIAL || last == TokenType.CONSTANT) {
+                    last == TokenType.FACTORIAL || last == TokenType.CONSTANT || last == TokenType.VARIABLE ||
+                    last == TokenType.REGISTER) {
                 mathTokens.add("*");
                 mathTokenTypes.add(TokenType.OPERATOR);
                 uiTokens.add("×");
@@ -867,72 +739,34 @@ public class VoiceCommandProcessor {
         }
     }
 
-    private static final class OperatorMatch {
-        final String phrase;
-        final int length;
-
-        OperatorMatch(String phrase, int length) {
-            this.phrase = phrase;
-            this.length = length;
-        }
-    }
-
-    private static final class ConstantValue {
-        final String ui;
-        final String math;
-
-        ConstantValue(String ui, String math) {
-            this.ui = ui;
-            this.math = math;
-        }
-    }
-
     private static final class SpeechExpressionParser {
-        private static final int MAX_OPERATOR_WORDS = 3;
-        private static final int MAX_CONSTANT_WORDS = 4;
-
         private SpeechExpressionParser() {
         }
 
-        static ProcessResult parse(String normalizedText) {
-            if (normalizedText == null || normalizedText.isEmpty()) {
-                return ProcessResult.empty();
-            }
-
-            String[] rawWords = normalizedText.split(" ");
-            List<String> words = new ArrayList<>();
-            for (String word : rawWords) {
-                if (word == null) continue;
-                String trimmed = word.trim();
-                if (!trimmed.isEmpty()) {
-                    words.add(trimmed);
-                }
-            }
-
-            if (words.isEmpty()) {
+        static ProcessResult parse(SpeechTokens words, boolean variables) {
+            VoiceLexicon lexicon = VoiceLexicon.get();
+            if (words.size() == 0) {
                 return ProcessResult.empty();
             }
 
             BuildContext ctx = new BuildContext();
             CommandType command = CommandType.NONE;
+            String register = null;
             boolean shouldEvaluate = false;
 
-            String[] wordArray = words.toArray(new String[0]);
             int i = 0;
             while (i < words.size()) {
-                String word = words.get(i);
-                if (word.isEmpty()) {
+                int word = words.id(i);
+                if (variables && lexicon.is(word, VoiceLexicon.VARIABLE)) {
+                    ctx.addVariable();
                     i++;
                     continue;
                 }
 
-                OperatorMatch match = matchOperator(words, i);
-                if (match != null) {
-                    String operator = operatorWords.get(match.phrase);
-                    if (operator == null) {
-                        i += match.length;
-                        continue;
-                    }
+                long match = lexicon.operators().match(words, i);
+                if (match != PhraseTrie.NO_MATCH) {
+                    String operator = lexicon.operators().value(match);
+                    int matchLength = PhraseTrie.length(match);
                     if ("C".equals(operator)) {
                         command = CommandType.CLEAR;
                         ctx = new BuildContext();
@@ -943,43 +777,82 @@ public class VoiceCommandProcessor {
                         ctx = new BuildContext();
                         break;
                     }
+                    if ("MC".equals(operator)) {
+                        command = CommandType.MEMORY_CLEAR;
+                        ctx = new BuildContext();
+                        break;
+                    }
+                    if ("EXACT".equals(operator) || "DECIMAL".equals(operator)) {
+                        command = "EXACT".equals(operator) ? CommandType.EXACT_MODE : CommandType.DECIMAL_MODE;
+                        ctx = new BuildContext();
+                        break;
+                    }
+                    if ("M+".equals(operator) || "M-".equals(operator)) {
+                        command = "M+".equals(operator) ? CommandType.MEMORY_ADD : CommandType.MEMORY_SUBTRACT;
+                        break;
+                    }
+                    if ("STO".equals(operator)) {
+                        int next = i + matchLength;
+                        register = next < words.size() ? registerName(words, next) : null;
+                        if (register != null) {
+                            command = CommandType.STORE;
+                            break;
+                        }
+                        i = next;
+                        continue;
+                    }
+                    if ("ANS".equals(operator) || "MR".equals(operator)) {
+                        ctx.addRegister("ANS".equals(operator) ? Registers.ANSWER_NAME : "M");
+                        i += matchLength;
+                        continue;
+                    }
+                    if ("VAR".equals(operator)) {
+                        int next = i + matchLength;
+                        String name = next < words.size() ? registerName(words, next) : null;
+                        if (name != null) {
+                            ctx.addRegister(name);
+                            next++;
+                        }
+                        i = next;
+                        continue;
+                    }
                     if ("=".equals(operator)) {
                         shouldEvaluate = true;
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("+".equals(operator)) {
                         ctx.addOperator("+", "+");
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("-".equals(operator)) {
                         ctx.addOperator("-", "−");
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("×".equals(operator)) {
                         ctx.addOperator("*", "×");
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("÷".equals(operator)) {
                         ctx.addOperator("/", "÷");
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("%".equals(operator)) {
                         ctx.addPercent();
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("!".equals(operator)) {
                         boolean applied = ctx.addFactorial();
                         if (!applied) {
-                            int nextIndex = i + match.length;
-                            ParseResult factorialNumber = parseNumber(wordArray, nextIndex);
+                            int nextIndex = i + matchLength;
+                            ParseResult factorialNumber = parseNumber(words, nextIndex);
                             if (factorialNumber == null) {
-                                factorialNumber = parseNumericLiteral(wordArray, nextIndex);
+                                factorialNumber = parseNumericLiteral(words, nextIndex);
                             }
                             if (factorialNumber != null) {
                                 ctx.addNumber(factorialNumber.uiString, factorialNumber.mathString);
@@ -988,73 +861,74 @@ public class VoiceCommandProcessor {
                                 continue;
                             }
                         }
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("^".equals(operator)) {
                         ctx.addOperator("^", "^");
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if (operator.startsWith("^")) {
                         ctx.addPowerOperator(operator);
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("(".equals(operator)) {
                         ctx.addOpenParenthesis();
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if (")".equals(operator)) {
                         ctx.addCloseParenthesis();
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("√".equals(operator)) {
                         ctx.addFunction(FunctionType.SQRT);
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("sin".equals(operator)) {
                         ctx.addFunction(FunctionType.SIN);
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("cos".equals(operator)) {
                         ctx.addFunction(FunctionType.COS);
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("tan".equals(operator)) {
                         ctx.addFunction(FunctionType.TAN);
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("log".equals(operator)) {
                         ctx.addFunction(FunctionType.LOG);
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
                     if ("ln".equals(operator)) {
                         ctx.addFunction(FunctionType.LN);
-                        i += match.length;
+                        i += matchLength;
                         continue;
                     }
-                    i += match.length;
+                    i += matchLength;
                     continue;
                 }
-                ConstantMatch constantMatch = matchConstant(words, i);
-                if (constantMatch != null) {
-                    ConstantValue constantValue = constantWords.get(constantMatch.phrase);
-                    if (constantValue != null) {
-                        ctx.addConstant(constantValue.ui, constantValue.math);
-                        i += constantMatch.length;
-                        continue;
-                    }
+                long constantMatch = lexicon.constants().match(words, i);
+                if (constantMatch != PhraseTrie.NO_MATCH) {
+                    VoiceLexicon.ConstantValue constantValue = lexicon.constants().value(constantMatch);
+                    ctx.addConstant(constantValue.ui, constantValue.math);
+                    i += PhraseTrie.length(constantMatch);
+                    continue;
                 }
-                String normalized = normalizeText(word);
-                if (normalized.matches("\\d+([.,]\\d+)?%")) {
+                // Números escritos com algarismos não estão no léxico.
+                boolean literal = word == Lexicon.UNKNOWN;
+                if (literal && words.charAt(i, words.length(i) - 1) == '%'
+                        && isDecimalLiteral(words.text(), words.start(i), words.end(i) - 1)) {
+                    String normalized = words.word(i);
                     String numberPart = normalized.substring(0, normalized.length() - 1);
                     String math;
                     String ui;
@@ -1082,19 +956,20 @@ public class VoiceCommandProcessor {
                     i++;
                     continue;
                 }
-                ParseResult number = parseNumber(wordArray, i);
+                ParseResult number = parseNumber(words, i);
                 if (number != null) {
                     ctx.addNumber(number.uiString, number.mathString);
                     i = number.nextIndex;
                     continue;
                 }
 
-                if (fillerWords.contains(normalized)) {
+                if (lexicon.is(word, VoiceLexicon.FILLER)) {
                     i++;
                     continue;
                 }
 
-                if (normalized.matches("\\d+([,.]\\d+)?")) {
+                if (literal && isDecimalLiteral(words.text(), words.start(i), words.end(i))) {
+                    String normalized = words.word(i);
                     String math;
                     boolean hasDot = normalized.contains(".");
                     boolean hasComma = normalized.contains(",");
@@ -1109,9 +984,9 @@ public class VoiceCommandProcessor {
                         math = normalized.replace(',', '.');
                     }
 
-                    ParseResult literal = buildNumericLiteralResult(new BigDecimal(math), wordArray, i + 1);
-                    ctx.addNumber(literal.uiString, literal.mathString);
-                    i = literal.nextIndex;
+                    ParseResult result = buildNumericLiteralResult(new BigDecimal(math), words, i + 1);
+                    ctx.addNumber(result.uiString, result.mathString);
+                    i = result.nextIndex;
                     continue;
                 }
 
@@ -1121,6 +996,10 @@ public class VoiceCommandProcessor {
             ctx.closeAll();
             List<String> uiTokens = Collections.unmodifiableList(new ArrayList<>(ctx.uiTokens));
             String mathExpression = ctx.buildMathExpression();
+            if (command == CommandType.STORE || command == CommandType.MEMORY_ADD
+                    || command == CommandType.MEMORY_SUBTRACT) {
+                return new ProcessResult(command, false, uiTokens, mathExpression, register);
+            }
             if (command != CommandType.NONE) {
                 return new ProcessResult(command, false, Collections.emptyList(), "");
             }
@@ -1130,58 +1009,85 @@ public class VoiceCommandProcessor {
             return new ProcessResult(command, shouldEvaluate, uiTokens, mathExpression);
         }
 
-        private static OperatorMatch matchOperator(List<String> words, int index) {
-            int max = Math.min(words.size(), index + MAX_OPERATOR_WORDS);
-            for (int end = max; end > index; end--) {
-                StringBuilder candidate = new StringBuilder();
-                for (int i = index; i < end; i++) {
-                    if (i > index) {
-                        candidate.append(' ');
-                    }
-                    candidate.append(words.get(i));
-                }
-                String phrase = candidate.toString();
-                if (operatorWords.containsKey(phrase)) {
-                    return new OperatorMatch(phrase, end - index);
-                }
+        /**
+         * Nome do registrador dito na palavra {@code index} ("a" vira "A",
+         * "memoria" vira "M"), ou null. Só é chamado depois de "variável",
+         * "registrador" ou "guarde em": uma letra solta fora disso é quase
+         * sempre artigo ("a soma de...") ou erro do reconhecedor.
+         */
+        private static String registerName(SpeechTokens words, int index) {
+            VoiceLexicon lexicon = VoiceLexicon.get();
+            if (words.id(index) == lexicon.memoryWord()) {
+                return "M";
             }
-            return null;
-        }
-
-        private static ConstantMatch matchConstant(List<String> words, int index) {
-            int max = Math.min(words.size(), index + MAX_CONSTANT_WORDS);
-            for (int end = max; end > index; end--) {
-                StringBuilder candidate = new StringBuilder();
-                for (int i = index; i < end; i++) {
-                    if (i > index) {
-                        candidate.append(' ');
-                    }
-                    candidate.append(words.get(i));
-                }
-                String normalized = normalizeText(candidate.toString());
-                if (constantWords.containsKey(normalized)) {
-                    return new ConstantMatch(normalized, end - index);
-                }
+            if (words.length(index) != 1) {
+                return null;
             }
-            return null;
+            String name = String.valueOf(Character.toUpperCase(words.charAt(index, 0)));
+            return Registers.slot(name) >= 0 ? name : null;
         }
+    }
 
-        private static final class ConstantMatch {
-            final String phrase;
-            final int length;
+    private static boolean isThousandGrouping(String token) {
+        return isThousandGrouping(token, 0, token.length());
+    }
 
-            ConstantMatch(String phrase, int length) {
-                this.phrase = phrase;
-                this.length = length;
+    private static boolean isThousandGroupingWithDecimal(String token) {
+        return isThousandGroupingWithDecimal(token, 0, token.length());
+    }
+
+    // \d+
+    private static boolean isDigits(String text, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
             }
         }
+        return true;
     }
 
-    private static boolean isThousandGrouping(String token) {
-        return token.matches("\\d{1,3}(\\.\\d{3})+");
+    // \d+([,.]\d+)?
+    private static boolean isDecimalLiteral(String text, int start, int end) {
+        int i = start;
+        while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == end) {
+            return i > start;
+        }
+        char separator = text.charAt(i);
+        return i > start && (separator == ',' || separator == '.') && isDigits(text, i + 1, end);
     }
 
-    private static boolean isThousandGroupingWithDecimal(String token) {
-        return token.matches("\\d{1,3}(\\.\\d{3})+,\\d+");
+    // \d{1,3}(\.\d{3})+
+    private static boolean isThousandGrouping(String text, int start, int end) {
+        return thousandGroupsEnd(text, start, end) == end;
+    }
+
+    // \d{1,3}(\.\d{3})+,\d+
+    private static boolean isThousandGroupingWithDecimal(String text, int start, int end) {
+        int groups = thousandGroupsEnd(text, start, end);
+        return groups >= 0 && groups < end && text.charAt(groups) == ',' && isDigits(text, groups + 1, end);
+    }
+
+    /** Fim de \d{1,3}(\.\d{3})+ a partir de {@code start}, ou -1 se o trecho não começa assim. */
+    private static int thousandGroupsEnd(String text, int start, int end) {
+        int i = start;
+        while (i < end && i - start < 4 && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == start || i - start > 3) {
+            return -1;
+        }
+        int groups = 0;
+        while (i + 4 <= end && text.charAt(i) == '.' && isDigits(text, i + 1, i + 4)) {
+            i += 4;
+            groups++;
+        }
+        return groups > 0 ? i : -1;
     }
 }
@@ -0,0 +1,238 @@
+package com.jfsantos.calculadorainteligente;
+
+import java.math.BigDecimal;
+
+/**
+ * Vocabulário do reconhecimento de voz já compilado: o {@link Lexicon} com as
+ * marcas de cada palavra, os valores dos números por extenso e os tries das
+ * frases de operadores e de constantes. As tabelas abaixo são só a fonte; as
+ * chaves entram no léxico já em minúscula e sem acento, como as palavras que
+ * {@link SpeechLexer} produz.
+ *
+ * A instância é montada uma única vez, na primeira chamada de {@link #get()}
+ * ou antes disso por {@link #loadInBackground()}, e não muda depois de
+ * construída. Ela é publicada pela inicialização de classe, então qualquer
+ * thread pode lê-la sem sincronização.
+ */
+final class VoiceLexicon {
+    static final int FILLER = 1;
+    static final int DECIMAL_MARKER = 2;
+    // Frase de operador com uma palavra só.
+    static final int OPERATOR_WORD = 4;
+    // "x" e "xis" nas funções de x.
+    static final int VARIABLE = 8;
+    // Número por extenso; MULTIPLIER para os inteiros a partir de mil.
+    static final int NUMBER = 16;
+    static final int MULTIPLIER = 32;
+
+    // Pares palavra, valor.
+    private static final String[] NUMBER_WORDS = {
+            "zero", "0", "um", "1", "uma", "1", "dois", "2", "duas", "2", "três", "3", "tres", "3",
+            "quatro", "4", "cinco", "5", "seis", "6", "sete", "7", "oito", "8", "nove", "9",
+
+            "dez", "10", "onze", "11", "doze", "12", "treze", "13", "quatorze", "14", "catorze", "14",
+            "quinze", "15", "dezesseis", "16", "dezasseis", "16", "dezessete", "17", "dezassete", "17",
+            "dezoito", "18", "dezenove", "19", "dezanove", "19",
+
+            "vinte", "20", "trinta", "30", "quarenta", "40", "cinquenta", "50", "sessenta", "60",
+            "setenta", "70", "oitenta", "80", "noventa", "90",
+
+            "cem", "100", "cento", "100", "duzentos", "200", "duzentas", "200", "trezentos", "300",
+            "trezentas", "300", "quatrocentos", "400", "quatrocentas", "400", "quinhentos", "500",
+            "quinhentas", "500", "seiscentos", "600", "seiscentas", "600", "setecentos", "700",
+            "setecentas", "700", "oitocentos", "800", "oitocentas", "800", "novecentos", "900",
+            "novecentas", "900",
+
+            "mil", "1000", "milhao", "1000000", "milhão", "1000000", "milhoes", "1000000", "milhões", "1000000",
+            "bilhao", "1000000000", "bilhão", "1000000000", "bilhoes", "1000000000", "bilhões", "1000000000",
+            "pi", "3.1415926535", "euler", "2.7182818284",
+
+            "meia", "0.5", "meio", "0.5", "metade", "0.5"
+    };
+
+    // Pares frase, operador.
+    private static final String[] OPERATOR_WORDS = {
+            "+", "+", "-", "-", "−", "-", "×", "×", "/", "÷", "÷", "÷",
+
+            "mais", "+", "adição", "+", "adicao", "+", "adicionar", "+", "somar", "+", "soma", "+", "plus", "+",
+
+            "menos", "-", "subtração", "-", "subtracao", "-", "subtrair", "-", "subtraia", "-", "subitrai", "-",
+            "minus", "-",
+
+            "vezes", "×", "multiplicação", "×", "multiplicacao", "×", "multiplicar", "×", "multiplique", "×",
+            "multiplica", "×", "x", "×", "*", "×", "times", "×",
+
+            "dividir", "÷", "divisão", "÷", "divisao", "÷", "divida", "÷", "dividido", "÷", "dividida", "÷",
+            "dividido por", "÷", "dividida por", "÷", "sobre", "÷", "divide", "÷", "slash", "÷", "barra", "÷",
+
+            "por cento", "%", "por cento de", "%", "por cento do", "%", "por cento da", "%",
+            "por cento dos", "%", "por cento das", "%", "porcento", "%", "porcento de", "%", "porcento do", "%",
+            "porcento da", "%", "porcento dos", "%", "porcento das", "%", "porcentagem", "%", "percentual", "%",
+            "percent", "%",
+
+            "abre parenteses", "(", "abre parentese", "(", "abre parênteses", "(", "abre parêntese", "(",
+            "fecha parenteses", ")", "fecha parentese", ")", "fecha parênteses", ")", "fecha parêntese", ")",
+
+            "raiz quadrada", "√", "raiz", "√", "radiciacao", "√", "radiciação", "√", "seno", "sin",
+            "sin", "sin", "coseno", "cos", "cosseno", "cos", "cos", "cos", "tangente", "tan", "tan", "tan",
+            "logaritmo", "log", "log", "log", "log natural", "ln", "ln", "ln", "potencia", "^", "potência", "^",
+            "elevado a", "^", "ao quadrado", "^2", "ao cubo", "^3", "fatorial", "!",
+
+            "igual", "=", "é igual", "=", "eh igual", "=", "resultado", "=", "calcular", "=", "calcula", "=",
+            "calculo", "=", "enter", "=", "equals", "=", "limpar", "C", "limpe", "C", "limpa", "C",
+            "resetar", "C", "reset", "C", "zerar", "C", "zera", "C", "apagar", "DEL", "apague", "DEL",
+            "apaga", "DEL", "deletar", "DEL", "delete", "DEL", "remove", "DEL",
+
+            "guarde em", "STO", "guardar em", "STO", "guarda em", "STO", "guarde na", "STO",
+            "guardar na", "STO", "salve em", "STO", "salvar em", "STO", "salva em", "STO", "salve na", "STO",
+            "salvar na", "STO", "armazene em", "STO", "armazenar em", "STO", "memória mais", "M+",
+            "memória menos", "M-", "limpar memória", "MC", "limpa memória", "MC", "limpe memória", "MC",
+            "zerar memória", "MC", "apagar memória", "MC", "memória", "MR", "resposta", "ANS",
+            "última resposta", "ANS", "último resultado", "ANS", "variável", "VAR", "registrador", "VAR",
+
+            "modo exato", "EXACT", "modo fração", "EXACT", "modo frações", "EXACT", "frações exatas", "EXACT",
+            "modo decimal", "DECIMAL"
+    };
+
+    // Trios frase, texto exibido, valor.
+    private static final String[] CONSTANT_WORDS = {
+            "pi", "π", "3.141592653589793",
+            "constante pi", "π", "3.141592653589793",
+            "numero pi", "π", "3.141592653589793",
+            "valor de pi", "π", "3.141592653589793",
+
+            "numero e", "e", "2.718281828459045",
+            "constante e", "e", "2.718281828459045",
+            "numero de euler", "e", "2.718281828459045",
+            "constante de euler", "e", "2.718281828459045",
+            "numero neperiano", "e", "2.718281828459045",
+            "neperiano", "e", "2.718281828459045",
+            "euler", "e", "2.718281828459045",
+
+            "radius", "RAD", "0.017453292519943295",
+            "rad", "RAD", "0.017453292519943295",
+            "radiano", "RAD", "0.017453292519943295",
+            "radianos", "RAD", "0.017453292519943295",
+            "constante radiano", "RAD", "0.017453292519943295",
+            "constante radius", "RAD", "0.017453292519943295"
+    };
+
+    private static final String[] FILLER_WORDS = {
+            "e", "da", "de", "do", "das", "dos", "com", "por", "a", "o", "os", "as", "ao", "aos", "uma", "um"
+    };
+
+    private static final String[] DECIMAL_MARKERS = {
+            "virgula", "ponto", "decimal", "dot", "comma"
+    };
+
+    private static Thread loader;
+
+    private final Lexicon words = new Lexicon();
+    private final PhraseTrie<String> operators = new PhraseTrie<>(words);
+    private final PhraseTrie<ConstantValue> constants = new PhraseTrie<>(words);
+    // Valor de cada número por id, como mantissa e escala de ScaledDecimal.
+    private final long[] numberValues;
+    private final int[] numberScales;
+    private final int memoryWord;
+
+    private VoiceLexicon() {
+        for (int i = 0; i < OPERATOR_WORDS.length; i += 2) {
+            String phrase = SpeechLexer.fold(OPERATOR_WORDS[i]);
+            operators.put(phrase, OPERATOR_WORDS[i + 1]);
+            if (phrase.indexOf(' ') < 0) {
+                words.mark(phrase, OPERATOR_WORD);
+            }
+        }
+        for (int i = 0; i < CONSTANT_WORDS.length; i += 3) {
+            constants.put(SpeechLexer.fold(CONSTANT_WORDS[i]),
+                    new ConstantValue(CONSTANT_WORDS[i + 1], CONSTANT_WORDS[i + 2]));
+        }
+        for (String word : FILLER_WORDS) {
+            words.mark(word, FILLER);
+        }
+        for (String word : DECIMAL_MARKERS) {
+            words.mark(word, DECIMAL_MARKER);
+        }
+        words.mark("x", VARIABLE);
+        words.mark("xis", VARIABLE);
+        memoryWord = words.intern("memoria");
+
+        for (int i = 0; i < NUMBER_WORDS.length; i += 2) {
+            words.intern(SpeechLexer.fold(NUMBER_WORDS[i]));
+        }
+        numberValues = new long[words.size()];
+        numberScales = new int[words.size()];
+        for (int i = 0; i < NUMBER_WORDS.length; i += 2) {
+            String word = SpeechLexer.fold(NUMBER_WORDS[i]);
+            BigDecimal value = new BigDecimal(NUMBER_WORDS[i + 1]);
+            int id = words.intern(word);
+            numberValues[id] = ScaledDecimal.mantissa(value);
+            numberScales[id] = value.scale();
+            words.mark(word, value.scale() == 0 && value.compareTo(BigDecimal.valueOf(1000)) >= 0
+                    ? NUMBER | MULTIPLIER : NUMBER);
+        }
+    }
+
+    private static final class Holder {
+        static final VoiceLexicon INSTANCE = new VoiceLexicon();
+    }
+
+    static VoiceLexicon get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Monta o vocabulário em uma thread de fundo, para que o primeiro comando
+     * ditado não pague a montagem. Quem chamar {@link #get()} antes de ela
+     * terminar espera a mesma montagem em vez de repeti-la. Só a primeira
+     * chamada inicia a thread; as seguintes devolvem a mesma.
+     */
+    static synchronized Thread loadInBackground() {
+        if (loader == null) {
+            loader = new Thread(VoiceLexicon::get, "voice-lexicon");
+            loader.setDaemon(true);
+            loader.start();
+        }
+        return loader;
+    }
+
+    Lexicon words() {
+        return words;
+    }
+
+    boolean is(int id, int flag) {
+        return words.is(id, flag);
+    }
+
+    PhraseTrie<String> operators() {
+        return operators;
+    }
+
+    PhraseTrie<ConstantValue> constants() {
+        return constants;
+    }
+
+    /** Mantissa do número {@code id}; só vale para palavras com {@link #NUMBER}. */
+    long numberValue(int id) {
+        return numberValues[id];
+    }
+
+    int numberScale(int id) {
+        return numberScales[id];
+    }
+
+    /** Id de "memoria", que também é o nome do registrador M. */
+    int memoryWord() {
+        return memoryWord;
+    }
+
+    static final class ConstantValue {
+        final String ui;
+        final String math;
+
+        ConstantValue(String ui, String math) {
+            this.ui = ui;
+            this.math = math;
+        }
+    }
+}
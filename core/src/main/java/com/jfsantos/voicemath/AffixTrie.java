@@ -0,0 +1,183 @@
+package com.jfsantos.voicemath;
+
+/**
+ * Trie de palavras para tirar frases fixas do começo ou do fim de um texto,
+ * como {@code ^(frase|...)\s+} e {@code \s+(frase|...)$} fariam, mas sem
+ * expressão regular: as palavras de uma frase são comparadas no próprio
+ * texto, separadas por exatamente um espaço, e a frase só vale se vier
+ * encostada em espaço em branco do lado de dentro do texto. O trie de
+ * sufixos guarda as frases de trás para frente e percorre o texto a partir
+ * do fim.
+ *
+ * Montado uma vez no carregamento da classe que o usa; depois disso só é
+ * lido.
+ */
+final class AffixTrie {
+    private static final String[] NO_WORDS = new String[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final boolean suffix;
+    private final Node root = new Node();
+
+    private AffixTrie(boolean suffix, String[] phrases) {
+        this.suffix = suffix;
+        for (String phrase : phrases) {
+            String[] words = phrase.split(" ");
+            Node node = root;
+            for (int i = 0; i < words.length; i++) {
+                node = node.child(words[suffix ? words.length - 1 - i : i]);
+            }
+            node.terminal = true;
+        }
+    }
+
+    static AffixTrie prefixes(String... phrases) {
+        return new AffixTrie(false, phrases);
+    }
+
+    static AffixTrie suffixes(String... phrases) {
+        return new AffixTrie(true, phrases);
+    }
+
+    /**
+     * Tira de {@code text} a frase mais longa do trie e o espaço em branco
+     * que a separa do resto; devolve {@code text} se nenhuma frase casar.
+     */
+    String strip(String text) {
+        return suffix ? stripSuffix(text) : stripPrefix(text);
+    }
+
+    private String stripPrefix(String text) {
+        int length = text.length();
+        int cut = -1;
+        int position = 0;
+        Node node = root;
+        while (true) {
+            int child = node.match(text, position);
+            if (child < 0) {
+                break;
+            }
+            int end = position + node.words[child].length();
+            node = node.children[child];
+            if (node.terminal && end < length && isWhitespace(text.charAt(end))) {
+                cut = end;
+            }
+            if (end >= length || text.charAt(end) != ' ') {
+                break;
+            }
+            position = end + 1;
+        }
+        if (cut < 0) {
+            return text;
+        }
+        while (cut < length && isWhitespace(text.charAt(cut))) {
+            cut++;
+        }
+        return text.substring(cut);
+    }
+
+    private String stripSuffix(String text) {
+        int end = anchor(text);
+        int cut = -1;
+        int position = end;
+        Node node = root;
+        while (true) {
+            int child = node.matchBefore(text, position);
+            if (child < 0) {
+                break;
+            }
+            int start = position - node.words[child].length();
+            node = node.children[child];
+            if (node.terminal && start > 0 && isWhitespace(text.charAt(start - 1))) {
+                cut = start;
+            }
+            if (start <= 0 || text.charAt(start - 1) != ' ') {
+                break;
+            }
+            position = start - 1;
+        }
+        if (cut < 0) {
+            return text;
+        }
+        while (cut > 0 && isWhitespace(text.charAt(cut - 1))) {
+            cut--;
+        }
+        return text.substring(0, cut) + text.substring(end);
+    }
+
+    // Onde $ casa: no fim do texto ou antes de uma quebra de linha final.
+    private static int anchor(String text) {
+        int length = text.length();
+        if (length == 0) {
+            return 0;
+        }
+        char last = text.charAt(length - 1);
+        if (last == '\n') {
+            return length > 1 && text.charAt(length - 2) == '\r' ? length - 2 : length - 1;
+        }
+        if (last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+            return length - 1;
+        }
+        return length;
+    }
+
+    // Os mesmos caracteres de \s nas expressões regulares.
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static final class Node {
+        String[] words = NO_WORDS;
+        Node[] children = NO_CHILDREN;
+        boolean terminal;
+
+        Node child(String word) {
+            int index = indexOf(word);
+            if (index >= 0) {
+                return children[index];
+            }
+            String[] newWords = new String[words.length + 1];
+            Node[] newChildren = new Node[words.length + 1];
+            System.arraycopy(words, 0, newWords, 0, words.length);
+            System.arraycopy(children, 0, newChildren, 0, words.length);
+            newWords[words.length] = word;
+            newChildren[words.length] = new Node();
+            words = newWords;
+            children = newChildren;
+            return newChildren[words.length - 1];
+        }
+
+        int indexOf(String word) {
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].equals(word)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Filha cuja palavra está escrita a partir de position, seguida de espaço em branco ou do fim.
+        int match(String text, int position) {
+            for (int i = 0; i < words.length; i++) {
+                int end = position + words[i].length();
+                if (text.regionMatches(position, words[i], 0, words[i].length())
+                        && (end == text.length() || isWhitespace(text.charAt(end)))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Filha cuja palavra termina em position, precedida de espaço em branco ou do início.
+        int matchBefore(String text, int position) {
+            for (int i = 0; i < words.length; i++) {
+                int start = position - words[i].length();
+                if (start >= 0 && text.regionMatches(start, words[i], 0, words[i].length())
+                        && (start == 0 || isWhitespace(text.charAt(start - 1)))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.jfsantos.voicemath;
+
+import com.jfsantos.calculadorainteligente.LruCache;
+import com.jfsantos.calculadorainteligente.VoiceCommandProcessor;
+
+import org.mariuszgromada.math.mxparser.Expression;
+
+import java.util.Locale;
+
+/**
+ * Ponte entre a fala reconhecida e o mXparser: normaliza a frase, converte em
+ * expressão com {@link VoiceCommandProcessor} e calcula. Não depende do Android,
+ * então roda igual no app e na JVM.
+ */
+public final class MXParserBridge {
+    private static final int EXPRESSION_CACHE_CAPACITY = 64;
+    // Verificar a sintaxe e separar os tokens custa muito mais que calcular;
+    // uma Expression já verificada é reaproveitada enquanto o texto não muda.
+    private static final LruCache<String, Expression> expressions =
+            new LruCache<>(EXPRESSION_CACHE_CAPACITY);
+
+    // Frases que passam pela normalização, pela conversão e pelas funções mais comuns.
+    private static final String[] WARM_UP_PHRASES = {
+            "quanto é vinte e dois mais oito",
+            "seis vezes sete por favor",
+            "cem dividido por dois menos dez",
+            "raiz quadrada de dezesseis",
+            "cinco ao quadrado",
+            "dez por cento de cinquenta",
+            "fatorial de cinco",
+    };
+    private static Thread warmUp;
+
+    // Prefixos de contexto e sufixos de comando tirados por normalizeMathPhrase.
+    private static final AffixTrie CONTEXT_PREFIXES = AffixTrie.prefixes(
+            "quanto é", "quanto que é", "quanto vale", "quanto que vale", "calcule", "calculate",
+            "faça a conta de", "qual o resultado de", "qual é o resultado de", "resultado de", "me diga",
+            "me mostra", "me mostre", "me informe", "me fala", "me fale", "quero saber", "preciso saber");
+    private static final AffixTrie COMMAND_SUFFIXES = AffixTrie.suffixes(
+            "por favor", "pf", "pfv", "obrigado", "obrigada", "valeu", "resultado", "igual", "igualmente",
+            "calcula", "calculate");
+    private static final AffixTrie QUESTION_SUFFIXES = AffixTrie.suffixes(
+            "interrogação", "ponto de interrogação", "?");
+
+    private MXParserBridge() {
+    }
+
+    /**
+     * Inicia, em uma thread de fundo, um aquecimento do mXparser e do
+     * VoiceCommandProcessor, para que o primeiro cálculo ditado não pague o
+     * carregamento das classes e tabelas. Só a primeira chamada inicia a
+     * thread; as seguintes devolvem a mesma.
+     */
+    public static synchronized Thread warmUpInBackground() {
+        if (warmUp == null) {
+            warmUp = new Thread(() -> {
+                for (String phrase : WARM_UP_PHRASES) {
+                    calculate(phrase);
+                }
+            }, "mxparser-warmup");
+            warmUp.setDaemon(true);
+            warmUp.setPriority(Thread.MIN_PRIORITY);
+            warmUp.start();
+        }
+        return warmUp;
+    }
+
+    /**
+     * Converte entrada de voz em expressão matemática e calcula usando mXparser
+     * Integra normalização + conversão + avaliação
+     */
+    public static String calculate(String input) {
+        if (input == null || input.trim().isEmpty()) return "";
+
+        // 1. Normaliza removendo prefixos de contexto
+        String normalized = normalizeMathPhrase(input);
+
+        // 2. Utiliza o novo parser para obter expressão avaliável
+        VoiceCommandProcessor.ProcessResult parsed = VoiceCommandProcessor.processVoiceCommandDetailed(normalized);
+
+        if (parsed.getCommand() != VoiceCommandProcessor.CommandType.NONE) {
+            return "";
+        }
+
+        String mathExpression = parsed.getMathExpression();
+        if (mathExpression == null || mathExpression.trim().isEmpty()) {
+            return "Expressão inválida";
+        }
+
+        double result = evaluate(mathExpression);
+
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            return "Expressão inválida: " + mathExpression;
+        }
+
+        String formatted = stripTrailingZeros(String.format(Locale.US, "%.10f", result)).replace('.', ',');
+        if (formatted.isEmpty()) {
+            formatted = "0";
+        }
+        return formatted;
+    }
+
+    // Tira os zeros do fim das casas decimais e o ponto que sobrar.
+    private static String stripTrailingZeros(String number) {
+        int end = number.length();
+        while (end > 0 && number.charAt(end - 1) == '0') {
+            end--;
+        }
+        if (end > 0 && number.charAt(end - 1) == '.') {
+            end--;
+        }
+        return number.substring(0, end);
+    }
+
+    static double evaluate(String mathExpression) {
+        Expression expression = expressions.get(mathExpression);
+        if (expression == null) {
+            expression = new Expression(mathExpression);
+            expressions.put(mathExpression, expression);
+        }
+        // Expression guarda estado durante o cálculo; duas threads não podem usá-la juntas.
+        synchronized (expression) {
+            return expression.calculate();
+        }
+    }
+
+    static int cachedExpressionCount() {
+        return expressions.size();
+    }
+
+    /**
+     * Normaliza frases comuns de comando matemático para facilitar o reconhecimento
+     * Remove prefixos como "quanto é", "calcule", "qual o resultado de", etc.
+     * E remove sufixos como "por favor", "igual", "resultado"
+     */
+    public static String normalizeMathPhrase(String input) {
+        if (input == null) return "";
+        String text = input.toLowerCase().trim();
+
+        // Remove prefixos de contexto
+        text = CONTEXT_PREFIXES.strip(text);
+
+        // Remove sufixos de comando
+        text = COMMAND_SUFFIXES.strip(text);
+
+        // Remove "interrogação" e "ponto de interrogação" no final
+        text = QUESTION_SUFFIXES.strip(text);
+
+        return text.trim();
+    }
+}
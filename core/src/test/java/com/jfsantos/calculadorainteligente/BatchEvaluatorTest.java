@@ -0,0 +1,68 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BatchEvaluatorTest {
+
+    @Test
+    public void testResultsKeepInputOrder() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(i + " × 2");
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BatchEvaluator evaluator = new BatchEvaluator(pool, BatchEvaluator.Mode.EXPRESSION, 3, 7);
+            List<BatchEvaluator.Result> results = new ArrayList<>();
+            evaluator.evaluate(lines.iterator(), results::add);
+
+            assertEquals(lines.size(), results.size());
+            for (int i = 0; i < lines.size(); i++) {
+                assertEquals(lines.get(i), results.get(i).getInput());
+                assertEquals(String.valueOf(i * 2), results.get(i).getResult());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testUtterancesAreConvertedAndErrorsReported() {
+        BatchEvaluator evaluator = new BatchEvaluator(ForkJoinPool.commonPool(), BatchEvaluator.Mode.UTTERANCE);
+        List<BatchEvaluator.Result> results = new ArrayList<>();
+        evaluator.evaluate(Arrays.asList("quanto é cinco mais três", "dez dividido por zero", "").iterator(),
+                results::add);
+
+        assertEquals("5 + 3", results.get(0).getExpression());
+        assertEquals("8", results.get(0).getResult());
+        assertEquals("10 ÷ 0", results.get(1).getExpression());
+        assertEquals("Não é possível dividir por zero", results.get(1).getResult());
+        assertEquals("Expressão inválida", results.get(2).getResult());
+    }
+
+    @Test
+    public void testMappedLineReaderSplitsLines() throws IOException {
+        Path file = Files.createTempFile("batch", ".txt");
+        try {
+            Files.write(file, "cinco mais três\r\n\ndez ÷ 2".getBytes(StandardCharsets.UTF_8));
+            List<String> lines = new ArrayList<>();
+            try (MappedLineReader reader = new MappedLineReader(file)) {
+                reader.forEachRemaining(lines::add);
+            }
+            assertEquals(Arrays.asList("cinco mais três", "", "dez ÷ 2"), lines);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Testes unitários para o motor de avaliação da calculadora
+ */
+public class CalculatorTest {
+
+    @Test
+    public void testCompiledExpressionRespectsPrecedence() {
+        CompiledExpression compiled = CompiledExpression.compile("2 + 3 × 4");
+        assertEquals(0, new BigDecimal("14").compareTo(compiled.evaluate()));
+    }
+
+    @Test
+    public void testCompiledExpressionCanBeReevaluated() {
+        CompiledExpression compiled = CompiledExpression.compile("( 10 − 4 ) ÷ 3");
+        BigDecimal first = compiled.evaluate();
+        BigDecimal second = compiled.evaluate();
+        assertEquals(first, second);
+        assertEquals(0, new BigDecimal("2").compareTo(first));
+    }
+
+    @Test
+    public void testCompiledExpressionReportsFailureOnEvaluate() {
+        CompiledExpression compiled = CompiledExpression.compile("5 ÷ 0");
+        try {
+            compiled.evaluate();
+            fail("Divisão por zero deveria falhar");
+        } catch (ArithmeticException e) {
+            assertEquals("Não é possível dividir por zero", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCompiledExpressionTracksCompleteness() {
+        assertTrue(CompiledExpression.compile("( 1 + 2 )").isComplete());
+        assertFalse(CompiledExpression.compile("( 1 + 2").isComplete());
+        assertFalse(CompiledExpression.compile("1 + 2 ×").isComplete());
+    }
+
+    @Test
+    public void testPartialAndFinalResultsAgree() {
+        Calculator calculator = new Calculator();
+        calculator.appendDigit("1");
+        calculator.appendDigit("2");
+        calculator.appendOperator("×");
+        calculator.appendDigit("3");
+        assertTrue(calculator.hasCompleteExpression());
+        assertEquals("36", calculator.evaluatePartial());
+        assertEquals("36", calculator.calculate());
+    }
+
+    @Test
+    public void testIncrementalEvaluatorFollowsAppendsAndDeletes() {
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        String[] steps = {"1", "12", "12 +", "12 + 3", "12 + 3 ×", "12 + 3 × 4", "12 + 3 × 45",
+                "12 + 3 × 4", "12 + 3", "12 + ( 3 − 1 )", "12"};
+        for (String step : steps) {
+            String text = step.endsWith("+") || step.endsWith("×") ? step.substring(0, step.length() - 1).trim() : step;
+            BigDecimal expected = CompiledExpression.compile(text).evaluate();
+            assertEquals(step, 0, expected.compareTo(evaluator.evaluate(text)));
+        }
+    }
+
+    @Test
+    public void testIncrementalEvaluatorRecoversAfterError() {
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        try {
+            evaluator.evaluate("8 ÷ 0");
+            fail("Divisão por zero deveria falhar");
+        } catch (ArithmeticException expected) {
+            // esperado
+        }
+        assertEquals(0, new BigDecimal("4").compareTo(evaluator.evaluate("8 ÷ 2")));
+        assertTrue(evaluator.isComplete("8 ÷ 2"));
+        assertFalse(evaluator.isComplete("8 ÷ ( 2"));
+    }
+
+    @Test
+    public void testIntegerPower() {
+        assertEquals("1024", calculate("2 ^ 10"));
+        assertEquals("2,25", calculate("1,5 ^ 2"));
+        assertEquals("-27", calculate("−3 ^ 3"));
+    }
+
+    @Test
+    public void testNegativeAndFractionalPowers() {
+        assertEquals("0,125", calculate("2 ^ −3"));
+        assertEquals("0,3333333333", calculate("3 ^ −1"));
+        assertEquals("2", calculate("4 ^ 0,5"));
+        assertEquals("1,4142135624", calculate("2 ^ 0,5"));
+    }
+
+    @Test(timeout = 2000)
+    public void testHugePowerIsRefused() {
+        try {
+            calculate("2 ^ 1000000");
+            fail("Potência enorme deveria ser recusada");
+        } catch (ArithmeticException e) {
+            assertEquals(PowerEngine.TOO_LARGE_MESSAGE, e.getMessage());
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void testLargeInexactPowerIsRefused() {
+        // 1,23456789 ^ 2000 tem 183 dígitos inteiros, mas não pode ser calculada exatamente.
+        try {
+            calculate("1,23456789 ^ 2000");
+            fail("Potência aproximada com zeros no lugar dos dígitos deveria ser recusada");
+        } catch (ArithmeticException e) {
+            assertEquals(PowerEngine.TOO_LARGE_MESSAGE, e.getMessage());
+        }
+        // Aproximada, mas com todos os dígitos mostrados corretos.
+        assertEquals("1,000500125", calculate("1,0000001 ^ 5000"));
+    }
+
+    @Test(timeout = 2000)
+    public void testLargeExactPower() {
+        String result = calculate("3 ^ 5000");
+        assertEquals(2386, result.length());
+        assertTrue(result.startsWith("403899"));
+    }
+
+    @Test(timeout = 2000)
+    public void testLargeFactorial() {
+        assertEquals("120", calculate("5 !"));
+        String result = calculate("1000 !");
+        assertEquals(2568, result.length());
+        assertTrue(result.startsWith("402387"));
+        assertEquals(result, calculate("1000 !"));
+    }
+
+    @Test(timeout = 2000)
+    public void testHugeFactorialIsRefused() {
+        try {
+            calculate("100000 !");
+            fail("Fatorial enorme deveria ser recusado");
+        } catch (ArithmeticException e) {
+            assertEquals(PowerEngine.TOO_LARGE_MESSAGE, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNonIntegerFactorialUsesGamma() {
+        assertEquals("11,6317283966", calculate("3,5 !"));
+        assertEquals("0,8862269255", calculate("0,5 !"));
+        assertEquals("-3,5449077018", calculate("−1,5 !"));
+    }
+
+    @Test
+    public void testFunctionsKeepBigDecimalPrecision() {
+        assertEquals("1,4142135623730950488016887242097", calculate("√ 2"));
+        assertEquals("4", calculate("√ 16"));
+        assertEquals("0,30102999566398119521373889472449", calculate("log ( 2 )"));
+        assertEquals("-0,69314718055994530941723212145818", calculate("ln ( 0,5 )"));
+    }
+
+    @Test
+    public void testTrigonometryReducesAnglesExactly() {
+        assertEquals("0,5", calculate("sin ( 30 )"));
+        assertEquals("0", calculate("sin ( 180 )"));
+        assertEquals("0", calculate("cos ( 90 )"));
+        assertEquals("-0,5", calculate("cos ( 480 )"));
+        assertEquals("1", calculate("tan ( 45 )"));
+        assertEquals("3", calculate("log ( 1000 )"));
+    }
+
+    @Test
+    public void testFunctionsOutsideTheirDomainAreInvalid() {
+        String[] invalid = {"√ ( −4 )", "log ( 0 )", "ln ( −1 )", "tan ( 90 )"};
+        for (String expression : invalid) {
+            try {
+                calculate(expression);
+                fail(expression + " deveria falhar");
+            } catch (ArithmeticException e) {
+                assertEquals("Expressão inválida", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testConstantsAreCachedPerPrecisionTier() {
+        MathContext mc = new MathContext(20);
+        assertEquals(new BigDecimal("3.1415926535897932385"), BigMath.pi(mc));
+        assertEquals(new BigDecimal("3.14159265358979323846264338327950288419716939937511"),
+                BigMath.pi(new MathContext(51)));
+        assertEquals(new BigDecimal("2.3025850929940456840"), BigMath.ln10(mc));
+    }
+
+    @Test
+    public void testPreviewOverBudgetIsReportedAsTooLarge() {
+        Calculator calculator = new Calculator();
+        calculator.restoreState("2 ^ 1000000", "", true);
+        assertEquals(Calculator.TOO_LARGE_RESULT, calculator.evaluatePartial());
+
+        calculator.restoreState("3000 ! × 3000 ! × 3000 !", "", true);
+        assertEquals(Calculator.TOO_LARGE_RESULT, calculator.evaluatePartial());
+        assertTrue(calculator.hasCompleteExpression());
+    }
+
+    @Test
+    public void testBudgetFailureIsNotCached() {
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        String text = "1000 ! ÷ 999 !";
+        try {
+            evaluator.evaluate(text, new EvaluationContext(1000, EvaluationContext.NO_DEADLINE));
+            fail("Orçamento pequeno deveria interromper a avaliação");
+        } catch (ResultTooLargeException expected) {
+            // esperado
+        }
+        assertEquals(0, new BigDecimal("1000").compareTo(evaluator.evaluate(text)));
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancelledEvaluationStops() {
+        EvaluationContext context = EvaluationContext.unbounded();
+        context.cancel();
+        CompiledExpression.compile("1 + 2").evaluate(context);
+    }
+
+    @Test
+    public void testResultCacheUsesCanonicalTokens() {
+        ResultCache cache = new ResultCache(8, LruCache.Eviction.LEAST_RECENTLY_USED);
+        Calculator calculator = new Calculator(cache);
+        calculator.restoreState("12 × 3", "", true);
+        assertEquals("36", calculator.calculate());
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        calculator.restoreState("12*3", "", true);
+        assertEquals("36", calculator.calculate());
+        calculator.restoreState("12 *3", "", true);
+        assertEquals("36", calculator.calculate());
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.size());
+        assertEquals(ResultCache.key("1,5 − 2"), ResultCache.key("1.5 -2"));
+        assertNotEquals(ResultCache.key("1 2"), ResultCache.key("12"));
+    }
+
+    @Test
+    public void testPreviewSkipsResultCache() {
+        ResultCache cache = new ResultCache(8, LruCache.Eviction.LEAST_RECENTLY_USED);
+        Calculator calculator = new Calculator(cache);
+        calculator.restoreState("12 × 3", "", true);
+        assertEquals("36", calculator.calculate());
+        // A prévia usa os pontos de retomada e não relê a expressão para montar a chave.
+        assertEquals("36", calculator.evaluatePartial());
+        calculator.appendOperator("+");
+        calculator.appendDigit("4");
+        assertEquals("40", calculator.evaluatePartial());
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testResultCacheEvictionIsConfigurable() {
+        ResultCache lru = new ResultCache(2, LruCache.Eviction.LEAST_RECENTLY_USED);
+        ResultCache fifo = new ResultCache(2, LruCache.Eviction.OLDEST_INSERTED);
+        for (ResultCache cache : new ResultCache[]{lru, fifo}) {
+            cache.put("a", BigDecimal.ONE);
+            cache.put("b", BigDecimal.ONE);
+            cache.get("a");
+            cache.put("c", BigDecimal.ONE);
+        }
+        assertNotNull(lru.get("a"));
+        assertNull(lru.get("b"));
+        assertNull(fifo.get("a"));
+        assertNotNull(fifo.get("b"));
+    }
+
+    @Test
+    public void testBudgetFailureIsNeverCachedAsResult() {
+        ResultCache cache = new ResultCache(8, LruCache.Eviction.LEAST_RECENTLY_USED);
+        Calculator calculator = new Calculator(cache);
+        calculator.restoreState("1000 ! ÷ 999 !", "", true);
+        try {
+            calculator.calculateValue(new EvaluationContext(1000, EvaluationContext.NO_DEADLINE));
+            fail("Orçamento pequeno deveria interromper a avaliação");
+        } catch (ArithmeticException expected) {
+            // esperado
+        }
+        assertEquals(Calculator.TOO_LARGE_RESULT,
+                calculator.evaluatePartial(new EvaluationContext(1000, EvaluationContext.NO_DEADLINE)));
+        assertEquals(0, cache.size());
+        assertEquals("1000", calculator.calculate());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testSlowButSmallPreviewIsNotTooLarge() throws InterruptedException {
+        // Contas pequenas que podem demorar na primeira vez (série do seno, gama).
+        Calculator calculator = new Calculator();
+        calculator.restoreState("sin ( 30 ) + 0,5 !", "", true);
+        assertNotEquals(Calculator.TOO_LARGE_RESULT, calculator.evaluatePartial());
+
+        Calculator uncached = new Calculator(new ResultCache(8, LruCache.Eviction.LEAST_RECENTLY_USED));
+        uncached.restoreState("sin ( 30 ) + 0,5 !", "", true);
+        EvaluationContext expired = new EvaluationContext(Long.MAX_VALUE, 1);
+        Thread.sleep(1);
+        assertNull(uncached.evaluatePartial(expired));
+        try {
+            expired = new EvaluationContext(Long.MAX_VALUE, 1);
+            Thread.sleep(1);
+            uncached.calculateValue(expired);
+            fail("Prazo vencido deveria interromper a avaliação");
+        } catch (ArithmeticException e) {
+            assertNotEquals(PowerEngine.TOO_LARGE_MESSAGE, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScaledLongPathMatchesBigDecimal() {
+        String[] expressions = {"22 + 8", "120 × 3", "1 ÷ 3", "−2 ÷ 3", "1 ÷ 8", "45,5 ÷ 7", "50 % 10",
+                "0,1 + 0,20", "1,50 × 2,0", "−7 % 3", "9223372036854775807 + 1",
+                "99999999999 × 99999999999", "0,0000000001 ÷ 3", "123456789012345678 ÷ 0,001"};
+        for (String expression : expressions) {
+            assertEquals(expression, evaluateWithBigDecimal(expression),
+                    CompiledExpression.compile(expression).evaluate());
+        }
+    }
+
+    @Test
+    public void testScaledDecimalRoundsHalfUp() {
+        assertEquals(6666666667L, ScaledDecimal.divide(2, 0, 3, 0));
+        assertEquals(-6666666667L, ScaledDecimal.divide(-2, 0, 3, 0));
+        assertEquals(-1250000000L, ScaledDecimal.divide(1, 0, -8, 0));
+        try {
+            ScaledDecimal.multiply(Long.MAX_VALUE, 2);
+            fail("Estouro deveria ser detectado");
+        } catch (ArithmeticException expected) {
+            // esperado
+        }
+    }
+
+    @Test
+    public void testLexerProducesIntTokens() {
+        ExpressionLexer.Tokens tokens = ExpressionLexer.tokenize("−2 × ( 3,5 − √ 4 ) !");
+        int[] expected = {ExpressionLexer.NUMBER, ExpressionLexer.MULTIPLY, ExpressionLexer.LEFT_PARENTHESIS,
+                ExpressionLexer.NUMBER, ExpressionLexer.SUBTRACT, ExpressionLexer.SQRT, ExpressionLexer.NUMBER,
+                ExpressionLexer.RIGHT_PARENTHESIS, ExpressionLexer.FACTORIAL};
+        assertEquals(expected.length, tokens.count());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], tokens.code(i));
+        }
+        assertEquals(0, new BigDecimal("-2").compareTo(
+                ExpressionLexer.parseNumber("−2", tokens.start(0), tokens.end(0))));
+        assertEquals(0, new BigDecimal("3.5").compareTo(
+                ExpressionLexer.parseNumber("−2 × ( 3,5", tokens.start(3), tokens.end(3))));
+    }
+
+    @Test
+    public void testEvaluationAllocatesLittle() {
+        String source = "12 + 3 × ( 4 − 1,5 ) ÷ 2";
+        CompiledExpression compiled = CompiledExpression.compile(source);
+        for (int i = 0; i < 1000; i++) {
+            compiled.evaluate();
+            ExpressionLexer.tokenize(source);
+        }
+
+        long evaluate = allocatedBytes(() -> compiled.evaluate());
+        long tokenize = allocatedBytes(() -> ExpressionLexer.tokenize(source));
+        Assume.assumeTrue(evaluate >= 0);
+        // Pilha, contexto e os BigDecimal intermediários; nenhum objeto por instrução.
+        assertTrue("evaluate: " + evaluate, evaluate < 1024);
+        // Um único int[] com três posições por caractere, mais o objeto Tokens.
+        assertTrue("tokenize: " + tokenize, tokenize <= 12L * source.length() + 64);
+    }
+
+    /**
+     * Avalia como antes do caminho em long: cada operação direto em BigDecimal.
+     */
+    private static BigDecimal evaluateWithBigDecimal(String expression) {
+        String[] parts = expression.split(" ");
+        BigDecimal a = ExpressionLexer.parseNumber(parts[0], 0, parts[0].length());
+        BigDecimal b = ExpressionLexer.parseNumber(parts[2], 0, parts[2].length());
+        long op = ExpressionLexer.scan(parts[1], 0, false);
+        return Operations.applyOperation(ExpressionLexer.code(op), b, a);
+    }
+
+    /**
+     * Média de bytes alocados por execução de {@code action}, ou -1 se a JVM
+     * não fornecer essa medida.
+     */
+    private static long allocatedBytes(Runnable action) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long thread = Thread.currentThread().getId();
+        int runs = 1000;
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < runs; i++) {
+            action.run();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / runs;
+    }
+
+    @Test
+    public void testTokensRenderTheExpression() {
+        Calculator calculator = new Calculator();
+        calculator.appendDigit("1");
+        calculator.appendDigit("2");
+        calculator.appendOperator("×");
+        calculator.appendParenthesis("(");
+        calculator.appendDigit("3");
+        calculator.appendDecimal();
+        calculator.appendDigit("5");
+        calculator.appendOperator("+");
+        calculator.appendOperator("−");
+        calculator.appendDigit("1");
+        calculator.appendParenthesis(")");
+        calculator.appendFactorial();
+        assertEquals("12 × ( 3,5 − 1 )!", calculator.getFullExpression());
+        assertEquals("12 × ( 3,5 − 1 )!", calculator.getExpression());
+        assertEquals(calculate("12 × ( 3,5 − 1 )!"), calculator.calculate());
+    }
+
+    @Test
+    public void testDeleteRemovesTokensAndReopensNumbers() {
+        Calculator calculator = new Calculator();
+        calculator.restoreState("12 + ( 34", "", true);
+        calculator.delete();
+        assertEquals("12 + ( 3", calculator.getFullExpression());
+        calculator.delete();
+        calculator.delete();
+        assertEquals("12 +", calculator.getFullExpression());
+        calculator.delete();
+        assertEquals("12", calculator.getFullExpression());
+        calculator.appendDigit("5");
+        assertEquals("125", calculator.getFullExpression());
+        assertEquals("125", calculator.calculate());
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterEdits() {
+        Calculator calculator = new Calculator();
+        calculator.restoreState("1 + 2 × 3", "", true);
+        Calculator.Snapshot snapshot = calculator.snapshot();
+        calculator.delete();
+        calculator.delete();
+        calculator.appendOperator("−");
+        calculator.appendDigit("9");
+
+        Calculator restored = new Calculator();
+        restored.restoreState(snapshot);
+        assertEquals("1 + 2 × 3", snapshot.getFullExpression());
+        assertEquals("1 + 2 × 3", restored.getFullExpression());
+        assertEquals("7", restored.calculate());
+        assertEquals("1 + 2 − 9", calculator.getFullExpression());
+    }
+
+    @Test(timeout = 2000)
+    public void testSharedTokensAreNeverCopiedOnEdit() {
+        ExpressionTokens tokens = new ExpressionTokens();
+        for (int i = 0; i < 20000; i++) {
+            tokens.add(ExpressionLexer.NUMBER, "1", BigDecimal.ONE, true);
+            tokens.add(ExpressionLexer.ADD, "+", null, true);
+        }
+        ExpressionTokens first = tokens.share();
+        // Como a tela: uma cópia por tecla, depois apagar e incluir no fim.
+        for (int i = 0; i < 200000; i++) {
+            tokens.share();
+            tokens.removeLast();
+            tokens.add(ExpressionLexer.SUBTRACT, "−", null, true);
+        }
+        assertEquals("+", first.lastText());
+        assertEquals("−", tokens.lastText());
+        assertEquals(first.size(), tokens.size());
+        assertTrue(first.render().endsWith("1 +"));
+    }
+
+    @Test
+    public void testStructuralStateIsTrackedIncrementally() {
+        Calculator calculator = new Calculator();
+        assertFalse(calculator.hasCompleteExpression());
+        calculator.appendParenthesis("(");
+        calculator.appendDigit("2");
+        assertEquals(1, calculator.getOpenParentheses());
+        assertFalse(calculator.hasCompleteExpression());
+        calculator.appendDecimal();
+        assertTrue(calculator.hasDecimalPoint());
+        assertFalse(calculator.hasCompleteExpression());
+        calculator.appendDigit("5");
+        calculator.appendParenthesis(")");
+        assertEquals(0, calculator.getOpenParentheses());
+        assertFalse(calculator.hasDecimalPoint());
+        assertTrue(calculator.hasCompleteExpression());
+        calculator.appendOperator("×");
+        assertFalse(calculator.hasCompleteExpression());
+        assertFalse(calculator.snapshot().isComplete());
+        calculator.delete();
+        assertTrue(calculator.hasCompleteExpression());
+        assertTrue(calculator.snapshot().isComplete());
+        calculator.delete();
+        assertEquals(1, calculator.getOpenParentheses());
+        calculator.delete();
+        assertTrue(calculator.hasDecimalPoint());
+        calculator.delete();
+        assertFalse(calculator.hasDecimalPoint());
+
+        calculator.restoreState(") ( 1", "", true);
+        assertEquals(0, calculator.getOpenParentheses());
+        assertFalse(calculator.hasCompleteExpression());
+    }
+
+    @Test
+    public void testResultKeepsExactValue() {
+        Calculator calculator = new Calculator();
+        BigDecimal third = new BigDecimal("0.3333333333");
+        calculator.setResult(third);
+        assertEquals("0,3333333333", calculator.getCurrentDisplay());
+        calculator.appendOperator("×");
+        calculator.appendDigit("3");
+        assertEquals("0,9999999999", calculator.calculate());
+        assertEquals(0, new BigDecimal("0.9999999999").compareTo(
+                calculator.calculateValue(EvaluationContext.unbounded())));
+    }
+
+    private static String calculate(String expression) {
+        Calculator calculator = new Calculator();
+        calculator.restoreState(expression, "", true);
+        return calculator.calculate();
+    }
+}
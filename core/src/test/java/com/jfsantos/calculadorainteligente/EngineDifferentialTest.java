@@ -0,0 +1,47 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class EngineDifferentialTest {
+
+    @Test
+    public void testGeneratedCasesAreReproducible() {
+        EngineDifferential.Case first = EngineDifferential.generate(EngineDifferential.Shape.NESTED, new Random(7));
+        EngineDifferential.Case second = EngineDifferential.generate(EngineDifferential.Shape.NESTED, new Random(7));
+        assertEquals(first.display, second.display);
+        assertEquals(first.mxparser, second.mxparser);
+        assertFalse(first.mxparser.contains("×"));
+        assertFalse(first.mxparser.contains(","));
+    }
+
+    @Test
+    public void testBothFailuresCountAsAgreement() {
+        assertTrue(EngineDifferential.agree(null, Double.NaN));
+        assertTrue(EngineDifferential.agree(new BigDecimal("0.3333333333"), 1.0 / 3));
+        assertFalse(EngineDifferential.agree(null, 1));
+        assertFalse(EngineDifferential.agree(new BigDecimal("2"), Double.POSITIVE_INFINITY));
+        assertFalse(EngineDifferential.agree(new BigDecimal("2.1"), 2));
+    }
+
+    @Test
+    public void testEnginesAgreeOnArithmetic() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            EngineDifferential.Report report = EngineDifferential.run(200, 1, pool);
+            for (EngineDifferential.Shape shape : EngineDifferential.Shape.values()) {
+                assertEquals(200, report.cases(shape));
+            }
+            assertEquals(report.examples().toString(), 0, report.mismatches(EngineDifferential.Shape.SUM));
+            assertEquals(report.examples().toString(), 0, report.mismatches(EngineDifferential.Shape.MIXED));
+            assertEquals(report.examples().toString(), 0, report.mismatches(EngineDifferential.Shape.POWER));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
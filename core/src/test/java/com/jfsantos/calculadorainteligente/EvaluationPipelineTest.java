@@ -0,0 +1,98 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Testes da avaliação fora da thread principal. A fila {@code mainThread}
+ * faz o papel do Looper: as entregas só rodam quando o teste as executa.
+ */
+public class EvaluationPipelineTest {
+    private final BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+    private final EvaluationPipeline pipeline = new EvaluationPipeline(mainThread::add);
+
+    @After
+    public void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void testOnlyLatestPreviewIsDelivered() throws InterruptedException {
+        List<String> delivered = new ArrayList<>();
+        pipeline.preview(snapshot("3000 ! × 3000 ! × 3000 !"), (snapshot, result) -> delivered.add(result));
+        pipeline.preview(snapshot("2 + 2"), (snapshot, result) -> delivered.add(result));
+        pipeline.preview(snapshot("3 × 3"), (snapshot, result) -> delivered.add(result));
+
+        while (delivered.isEmpty()) {
+            mainThread.take().run();
+        }
+        assertEquals(1, delivered.size());
+        assertEquals("9", delivered.get(0));
+    }
+
+    @Test(timeout = 5000)
+    public void testIncompletePreviewDeliversNull() throws InterruptedException {
+        List<String> delivered = new ArrayList<>();
+        pipeline.preview(snapshot("( 1 + 2"), (snapshot, result) -> delivered.add(result == null ? "null" : result));
+        while (delivered.isEmpty()) {
+            mainThread.take().run();
+        }
+        assertEquals("null", delivered.get(0));
+    }
+
+    @Test(timeout = 5000)
+    public void testCalculationDeliversResultOrError() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        pipeline.calculate(snapshot("12 × 3"), listener);
+        while (listener.events.isEmpty()) {
+            mainThread.take().run();
+        }
+        assertEquals("12 × 3 = 36", listener.events.get(0));
+
+        pipeline.calculate(snapshot("5 ÷ 0"), listener);
+        while (listener.events.size() < 2) {
+            mainThread.take().run();
+        }
+        assertEquals("5 ÷ 0 ! Não é possível dividir por zero", listener.events.get(1));
+    }
+
+    @Test(timeout = 5000)
+    public void testCancelDropsPendingResult() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        pipeline.calculate(snapshot("1 + 1"), listener);
+        pipeline.cancel();
+        Runnable delivery = mainThread.poll(500, TimeUnit.MILLISECONDS);
+        if (delivery != null) {
+            delivery.run();
+        }
+        assertTrue(listener.events.isEmpty());
+    }
+
+    private static Calculator.Snapshot snapshot(String expression) {
+        Calculator calculator = new Calculator();
+        calculator.restoreState(expression, "", true);
+        return calculator.snapshot();
+    }
+
+    private static final class RecordingListener implements EvaluationPipeline.ResultListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onResult(Calculator.Snapshot snapshot, String result, BigDecimal value) {
+            events.add(snapshot.getFullExpression() + " = " + result);
+        }
+
+        @Override
+        public void onError(Calculator.Snapshot snapshot, Exception error) {
+            events.add(snapshot.getFullExpression() + " ! " + error.getMessage());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FunctionTableTest {
+
+    @Test
+    public void testVoiceFunctionUsesXAsVariable() {
+        FunctionTable table = FunctionTable.fromVoice("x ao quadrado mais dois x");
+        assertEquals("x ^ 2 + 2 × x", table.getExpression());
+        // Fora do modo de função, "x" continua sendo vezes.
+        assertEquals("2 × 3", VoiceCommandProcessor.processVoiceCommand("dois x três"));
+    }
+
+    @Test
+    public void testSampleEvaluatesEveryPoint() {
+        double[] values = FunctionTable.fromVoice("x ao quadrado mais dois x")
+                .sample(-2, 2, 1, ForkJoinPool.commonPool());
+        assertArrayEquals(new double[]{0, -1, 0, 3, 8}, values, 0);
+    }
+
+    @Test
+    public void testUndefinedPointsAreNaN() {
+        double[] values = FunctionTable.compile("1 ÷ x + √x").sample(-1, 1, 1, ForkJoinPool.commonPool());
+        assertTrue(Double.isNaN(values[0]));
+        assertTrue(Double.isNaN(values[1]));
+        assertEquals(2, values[2], 0);
+        assertTrue(Double.isNaN(FunctionTable.compile("2 x").sample(0, 0, 1, ForkJoinPool.commonPool())[0]));
+    }
+
+    @Test
+    public void testFunctionsMatchCalculator() {
+        double[] values = FunctionTable.compile("sin(x) + x! + 10 % x").sample(0, 90, 30, ForkJoinPool.commonPool());
+        for (int i = 0; i < values.length; i++) {
+            double x = FunctionTable.x(0, 30, i);
+            Calculator calculator = new Calculator();
+            calculator.setExpression("sin(" + (int) x + ") + " + (int) x + "! + 10 % " + (int) x);
+            double expected = Double.parseDouble(calculator.calculate().replace(',', '.'));
+            assertEquals(expected, values[i], Math.abs(expected) * 1e-12);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testMillionPointsAreStreamedInChunks() throws Exception {
+        AtomicInteger completed = new AtomicInteger();
+        BitSet delivered = new BitSet();
+        FunctionTable.fromVoice("x ao cubo menos três x mais um").stream(0, 999_999, 1, ForkJoinPool.commonPool(),
+                Runnable::run, new FunctionTable.ChunkListener() {
+                    @Override
+                    public void onChunk(double[] values, int from, int to) {
+                        synchronized (delivered) {
+                            assertFalse(delivered.get(from));
+                            delivered.set(from, to);
+                        }
+                    }
+
+                    @Override
+                    public void onComplete(double[] values) {
+                        assertEquals(1_000_000, values.length);
+                        assertEquals(999.0 * 999 * 999 - 3 * 999 + 1, values[999], 0);
+                        completed.incrementAndGet();
+                    }
+                }).get(5, TimeUnit.SECONDS);
+        assertEquals(1, completed.get());
+        assertEquals(1_000_000, delivered.cardinality());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRangeIsRejected() {
+        FunctionTable.pointCount(1, 0, 1);
+    }
+}
@@ -0,0 +1,99 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Testes do trie de frases e do léxico usados pelo reconhecimento de voz
+ */
+public class PhraseTrieTest {
+
+    @Test
+    public void testLongestPhraseWins() {
+        Lexicon lexicon = new Lexicon();
+        PhraseTrie<String> trie = new PhraseTrie<>(lexicon);
+        trie.put("por cento", "%");
+        trie.put("por cento de", "% de");
+        trie.put("por", "×");
+        SpeechTokens words = SpeechLexer.lex("dez por cento de vinte", lexicon);
+
+        long match = trie.match(words, 1);
+        assertEquals(3, PhraseTrie.length(match));
+        assertEquals("% de", trie.value(match));
+        assertEquals(PhraseTrie.NO_MATCH, trie.match(words, 0));
+    }
+
+    @Test
+    public void testFallsBackToShorterPhrase() {
+        Lexicon lexicon = new Lexicon();
+        PhraseTrie<String> trie = new PhraseTrie<>(lexicon);
+        trie.put("elevado a", "^");
+        trie.put("elevado ao quadrado", "^2");
+        SpeechTokens words = SpeechLexer.lex("elevado ao cubo", lexicon);
+        assertEquals(PhraseTrie.NO_MATCH, trie.match(words, 0));
+
+        trie.put("elevado", "^");
+        words = SpeechLexer.lex("elevado ao cubo", lexicon);
+        long match = trie.match(words, 0);
+        assertEquals(1, PhraseTrie.length(match));
+    }
+
+    @Test
+    public void testPhrasesHaveNoWordLimit() {
+        Lexicon lexicon = new Lexicon();
+        PhraseTrie<Integer> trie = new PhraseTrie<>(lexicon);
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            phrase.append(i == 0 ? "" : " ").append("w").append(i);
+            trie.put(phrase.toString(), i + 1);
+        }
+        long match = trie.match(SpeechLexer.lex(phrase.toString(), lexicon), 0);
+        assertEquals(40, PhraseTrie.length(match));
+        assertEquals(Integer.valueOf(40), trie.value(match));
+    }
+
+    @Test
+    public void testLexerFoldsCaseAndAccentsInOnePass() {
+        Lexicon lexicon = new Lexicon();
+        int divisao = lexicon.intern("divisao");
+        int tres = lexicon.intern("tres");
+        SpeechTokens words = SpeechLexer.lex("  DIVISÃO\tpor\u0001 Três 3,5 ", lexicon);
+
+        assertEquals(4, words.size());
+        assertEquals(divisao, words.id(0));
+        assertEquals(Lexicon.UNKNOWN, words.id(1));
+        assertEquals("por", words.word(1));
+        assertEquals(tres, words.id(2));
+        assertEquals(Lexicon.UNKNOWN, words.id(3));
+        assertEquals("3,5", words.word(3));
+        assertEquals(0, SpeechLexer.lex(" \t\n", lexicon).size());
+    }
+
+    @Test
+    public void testVoiceLexiconIsBuiltOnceAndSharedAcrossThreads() throws Exception {
+        Thread loader = VoiceLexicon.loadInBackground();
+        assertSame(loader, VoiceLexicon.loadInBackground());
+
+        VoiceLexicon[] seen = new VoiceLexicon[4];
+        Thread[] readers = new Thread[seen.length];
+        for (int i = 0; i < readers.length; i++) {
+            int slot = i;
+            readers[i] = new Thread(() -> seen[slot] = VoiceLexicon.get());
+            readers[i].start();
+        }
+        loader.join();
+        for (int i = 0; i < readers.length; i++) {
+            readers[i].join();
+            assertSame(VoiceLexicon.get(), seen[i]);
+        }
+
+        VoiceLexicon lexicon = VoiceLexicon.get();
+        int mil = lexicon.words().id("mil", 0, 3);
+        assertTrue(lexicon.is(mil, VoiceLexicon.NUMBER));
+        assertTrue(lexicon.is(mil, VoiceLexicon.MULTIPLIER));
+        assertEquals(1000L, lexicon.numberValue(mil));
+        // As chaves acentuadas entram dobradas, como as palavras ditadas.
+        SpeechTokens words = SpeechLexer.lex("Milhão", lexicon.words());
+        assertEquals(lexicon.words().id("milhao", 0, 6), words.id(0));
+    }
+}
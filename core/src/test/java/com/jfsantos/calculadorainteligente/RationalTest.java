@@ -0,0 +1,126 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.mariuszgromada.math.mxparser.Expression;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Testes do modo exato (frações) do motor da calculadora
+ */
+public class RationalTest {
+
+    private static BigDecimal exact(String expression) {
+        return CompiledExpression.compile(expression).evaluateExact(EvaluationContext.unbounded(), Registers.EMPTY);
+    }
+
+    @Test
+    public void testDivisionIsNotRounded() {
+        assertEquals("1", Calculator.formatBigDecimal(exact("1 ÷ 3 × 3")));
+        assertEquals("0,9999999999", Calculator.formatBigDecimal(CompiledExpression.compile("1 ÷ 3 × 3").evaluate()));
+    }
+
+    @Test
+    public void testDisplayConversion() {
+        assertEquals("0,125", Calculator.formatBigDecimal(exact("1 ÷ 8")));
+        assertEquals("0,6666666667", Calculator.formatBigDecimal(exact("2 ÷ 3")));
+        assertEquals("-0,5", Calculator.formatBigDecimal(exact("1 ÷ −2")));
+        assertEquals("2,5", Calculator.formatBigDecimal(exact("10 % 25")));
+    }
+
+    @Test
+    public void testLongOverflowPromotesToBigInteger() {
+        StringBuilder divisions = new StringBuilder("1");
+        StringBuilder multiplications = new StringBuilder();
+        int[] primes = {7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73};
+        for (int p : primes) {
+            divisions.append(" ÷ ").append(p);
+            multiplications.append(" × ").append(p);
+        }
+        assertEquals("1", Calculator.formatBigDecimal(exact(divisions.append(multiplications).toString())));
+        assertEquals("1", Calculator.formatBigDecimal(exact("99999999999 × 99999999999 ÷ 99999999999 ÷ 99999999999")));
+    }
+
+    @Test
+    public void testIntegerPowersStayExact() {
+        assertEquals("1", Calculator.formatBigDecimal(exact("( 1 ÷ 3 ) ^ 2 × 9")));
+        assertEquals("8", Calculator.formatBigDecimal(exact("( 1 ÷ 2 ) ^ −3")));
+        assertEquals(0, new BigDecimal("1.4142135624").compareTo(exact("2 ^ 0,5").setScale(10, RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    public void testFailuresMatchDecimalMode() {
+        try {
+            exact("1 ÷ ( 3 − 3 )");
+            fail("Divisão por zero deveria falhar");
+        } catch (ArithmeticException e) {
+            assertEquals("Não é possível dividir por zero", e.getMessage());
+        }
+        try {
+            exact("5 +");
+            fail("Expressão incompleta deveria falhar");
+        } catch (ArithmeticException e) {
+            assertEquals("Expressão inválida", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAgreesWithMXParserOnRandomExpressions() {
+        Random random = new Random(7);
+        EngineDifferential.Shape[] shapes = {
+                EngineDifferential.Shape.SUM, EngineDifferential.Shape.PRODUCT,
+                EngineDifferential.Shape.MIXED, EngineDifferential.Shape.NESTED
+        };
+        for (int i = 0; i < 2000; i++) {
+            EngineDifferential.Case c = EngineDifferential.generate(shapes[i % shapes.length], random);
+            BigDecimal value;
+            try {
+                value = exact(c.display);
+            } catch (ArithmeticException e) {
+                value = null;
+            }
+            assertTrue(c.display, EngineDifferential.agree(value, new Expression(c.mxparser).calculate()));
+        }
+    }
+
+    @Test
+    public void testLiteralsWithManyDecimalPlaces() {
+        // 20 casas: a escala passa do maior denominador em long.
+        assertEquals(0, new BigDecimal("1.00000000000000000001").compareTo(exact("0,00000000000000000001 + 1")));
+        assertEquals("1", Calculator.formatBigDecimal(exact("0,0000000000000000000003 × 3 ÷ 0,0000000000000000000009")));
+
+        Calculator calculator = new Calculator();
+        calculator.setExactMode(true);
+        calculator.setExpression("0,00000000000000000001 + 1");
+        assertEquals("1,00000000000000000001", calculator.calculate());
+    }
+
+    @Test
+    public void testCalculatorExactModeIsPerSession() {
+        ResultCache cache = new ResultCache(16, LruCache.Eviction.LEAST_RECENTLY_USED);
+        Calculator decimal = new Calculator(cache);
+        decimal.setExpression("1 ÷ 3 × 3");
+        assertEquals("0,9999999999", decimal.calculate());
+
+        Calculator exactCalculator = new Calculator(cache);
+        exactCalculator.setExactMode(true);
+        exactCalculator.setExpression("1 ÷ 3 × 3");
+        assertEquals("1", exactCalculator.calculate());
+        assertEquals("1", exactCalculator.evaluatePartial());
+
+        Calculator evaluator = new Calculator(cache);
+        evaluator.restoreState(exactCalculator.snapshot());
+        assertEquals("1", evaluator.calculate());
+    }
+
+    @Test
+    public void testVoiceModeCommands() {
+        assertEquals("EXACT", VoiceCommandProcessor.processVoiceCommand("modo exato"));
+        assertEquals("EXACT", VoiceCommandProcessor.processVoiceCommand("modo fração"));
+        assertEquals("DECIMAL", VoiceCommandProcessor.processVoiceCommand("modo decimal"));
+    }
+}
@@ -0,0 +1,184 @@
+package com.jfsantos.calculadorainteligente;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Testes dos registradores (A–Z, M e Ans) no motor e nos comandos de voz
+ */
+public class RegistersTest {
+
+    @Test
+    public void testCompiledExpressionReadsRegistersOnEachEvaluation() {
+        CompiledExpression compiled = CompiledExpression.compile("A × 2 + Ans");
+        Registers registers = Registers.EMPTY.with(Registers.slot("A"), new BigDecimal("3"));
+        assertEquals(0, new BigDecimal("6").compareTo(compiled.evaluate(EvaluationContext.unbounded(), registers)));
+
+        registers = registers.with(Registers.ANSWER, new BigDecimal("0.5"));
+        assertEquals(0, new BigDecimal("6.5").compareTo(compiled.evaluate(EvaluationContext.unbounded(), registers)));
+    }
+
+    @Test
+    public void testUnsetRegisterIsZero() {
+        assertEquals(0, BigDecimal.ZERO.compareTo(CompiledExpression.compile("B + M").evaluate()));
+    }
+
+    @Test
+    public void testRegisterNames() {
+        assertEquals(0, Registers.slot("A"));
+        assertEquals(Registers.MEMORY, Registers.slot("M"));
+        assertEquals(Registers.ANSWER, Registers.slot("Ans"));
+        assertEquals(-1, Registers.slot("E"));
+        assertEquals(-1, Registers.slot("X"));
+        assertEquals(-1, Registers.slot("a"));
+        assertEquals(-1, Registers.slot("RAD"));
+        assertEquals("Ans", Registers.name(Registers.ANSWER));
+    }
+
+    @Test
+    public void testExpressionsWithRegistersSkipResultCache() {
+        assertNull(ResultCache.key("A + 1"));
+        assertNotNull(ResultCache.key("2 + 1"));
+    }
+
+    @Test
+    public void testCalculatorStoresAndRecalls() {
+        Calculator calculator = new Calculator(new ResultCache(16, LruCache.Eviction.LEAST_RECENTLY_USED));
+        calculator.store("A", new BigDecimal("15"));
+        calculator.appendRegister("A");
+        calculator.appendOperator("×");
+        calculator.appendDigit("2");
+        assertEquals("A × 2", calculator.getFullExpression());
+        assertEquals("30", calculator.calculate());
+        assertEquals("30", calculator.evaluatePartial());
+
+        // Mesmo texto, registrador novo: nada pode vir do cache nem dos pontos de retomada.
+        calculator.store("A", new BigDecimal("4"));
+        assertEquals("8", calculator.evaluatePartial());
+        assertEquals("8", calculator.calculate());
+        assertEquals(0, new BigDecimal("4").compareTo(calculator.recall("A")));
+    }
+
+    @Test
+    public void testRegisterAfterNumberMultipliesImplicitly() {
+        Calculator calculator = new Calculator();
+        calculator.store("B", new BigDecimal("7"));
+        calculator.appendDigit("2");
+        calculator.appendRegister("B");
+        assertEquals("2 × B", calculator.getFullExpression());
+        assertEquals("14", calculator.calculate());
+    }
+
+    @Test
+    public void testSetResultUpdatesAnswer() {
+        Calculator calculator = new Calculator();
+        calculator.setResult(new BigDecimal("42"));
+        calculator.clear();
+        calculator.appendRegister("Ans");
+        calculator.appendOperator("+");
+        calculator.appendDigit("1");
+        assertEquals("43", calculator.calculate());
+    }
+
+    @Test
+    public void testMemoryCommands() {
+        Calculator calculator = new Calculator();
+        calculator.memoryAdd(new BigDecimal("10"));
+        calculator.memoryAdd(new BigDecimal("5"));
+        calculator.memorySubtract(new BigDecimal("3"));
+        assertEquals(0, new BigDecimal("12").compareTo(calculator.recall("M")));
+        calculator.memoryClear();
+        assertEquals(0, BigDecimal.ZERO.compareTo(calculator.recall("M")));
+    }
+
+    @Test
+    public void testSnapshotCarriesRegisters() {
+        Calculator calculator = new Calculator();
+        calculator.store("C", new BigDecimal("9"));
+        calculator.appendRegister("C");
+        Calculator.Snapshot snapshot = calculator.snapshot();
+        calculator.store("C", new BigDecimal("1"));
+
+        Calculator evaluator = new Calculator();
+        evaluator.restoreState(snapshot);
+        assertEquals("9", evaluator.calculate());
+    }
+
+    @Test
+    public void testSavedRegistersSurviveRecreation() {
+        Calculator calculator = new Calculator();
+        calculator.setResult(new BigDecimal("-1"));
+        calculator.clear();
+        calculator.store("A", new BigDecimal("2.5"));
+        calculator.memoryAdd(new BigDecimal("7"));
+        calculator.appendRegister("A");
+        calculator.appendOperator("×");
+        calculator.appendDigit("2");
+        String[] saved = calculator.getRegisters().toStrings();
+
+        // Como na rotação: registradores antes da expressão.
+        Calculator recreated = new Calculator();
+        recreated.restoreRegisters(Registers.fromStrings(saved));
+        recreated.restoreState(calculator.getExpression(), calculator.getCurrentNumberRaw(),
+                calculator.isReadyForNewNumber());
+        assertEquals("5", recreated.calculate());
+        assertEquals(new BigDecimal("7"), recreated.recall("M"));
+        assertEquals(new BigDecimal("-1"), recreated.recall(Registers.ANSWER_NAME));
+        assertEquals(BigDecimal.ZERO, recreated.recall("B"));
+        assertSame(Registers.EMPTY, Registers.fromStrings(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRegisterIsRejected() {
+        new Calculator().store("E", BigDecimal.ONE);
+    }
+
+    @Test
+    public void testVoiceStoreCommand() {
+        VoiceCommandProcessor.ProcessResult result =
+                VoiceCommandProcessor.processVoiceCommandDetailed("cinco vezes três guarde em A");
+        assertEquals(VoiceCommandProcessor.CommandType.STORE, result.getCommand());
+        assertEquals("A", result.getRegister());
+        assertEquals("5 × 3", result.getUiExpression());
+        assertEquals("5 × 3 STO A", VoiceCommandProcessor.processVoiceCommand("cinco vezes três guarde em A"));
+        assertEquals("STO M", VoiceCommandProcessor.processVoiceCommand("guarde na memória"));
+    }
+
+    @Test
+    public void testVoiceRegisterRecall() {
+        assertEquals("A × 2", VoiceCommandProcessor.processVoiceCommand("variável A vezes dois"));
+        assertEquals("Ans + 1", VoiceCommandProcessor.processVoiceCommand("resposta mais um"));
+        assertEquals("2 × B", VoiceCommandProcessor.processVoiceCommand("dois vezes registrador b"));
+        assertEquals("M ÷ 4", VoiceCommandProcessor.processVoiceCommand("memória dividido por quatro"));
+        assertEquals("3 × C", VoiceCommandProcessor.processVoiceCommand("três variável c"));
+    }
+
+    @Test
+    public void testArticleIsNotRegister() {
+        assertEquals(Arrays.asList("2", "+", "√", "9"),
+                VoiceCommandProcessor.processVoiceCommandDetailed("dois mais a raiz de nove").getUiTokens());
+        assertEquals("5 + 3", VoiceCommandProcessor.processVoiceCommand("o cinco mais três"));
+    }
+
+    @Test
+    public void testBareLetterNeedsExplicitCue() {
+        assertEquals("5", VoiceCommandProcessor.processVoiceCommand("a soma de dois e três"));
+        assertFalse(VoiceCommandProcessor.processVoiceCommand("a multiplicação de dois por três").contains("A"));
+        assertFalse(VoiceCommandProcessor.processVoiceCommand("a divisão de dez por dois").contains("A"));
+        assertEquals("2", VoiceCommandProcessor.processVoiceCommand("dois mais a"));
+        assertEquals("2", VoiceCommandProcessor.processVoiceCommand("c mais dois"));
+        assertEquals("", VoiceCommandProcessor.processVoiceCommand("b"));
+    }
+
+    @Test
+    public void testVoiceMemoryCommands() {
+        assertEquals(VoiceCommandProcessor.CommandType.MEMORY_ADD,
+                VoiceCommandProcessor.processVoiceCommandDetailed("memória mais").getCommand());
+        assertEquals("10 M−", VoiceCommandProcessor.processVoiceCommand("dez memória menos"));
+        assertEquals("MC", VoiceCommandProcessor.processVoiceCommand("limpar memória"));
+        assertEquals("CLEAR", VoiceCommandProcessor.processVoiceCommand("limpar"));
+    }
+}
@@ -3,7 +3,7 @@ package com.jfsantos.calculadorainteligente;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
-import com.jfsantos.voicemath.NativeVoiceRecognizer;
+import com.jfsantos.voicemath.MXParserBridge;
 
 /**
  * Testes unitários para reconhecimento de voz de expressões matemáticas
@@ -13,119 +13,119 @@ public class VoiceRecognitionTest {
     @Test
     public void testSimpleAddition() {
         String input = "cinco mais três";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("8", result);
     }
 
     @Test
     public void testSimpleSubtraction() {
         String input = "dez menos quatro";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("6", result);
     }
 
     @Test
     public void testSimpleMultiplication() {
         String input = "seis vezes sete";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("42", result);
     }
 
     @Test
     public void testSimpleDivision() {
         String input = "vinte dividido por quatro";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("5", result);
     }
 
     @Test
     public void testCompositeNumbers() {
         String input = "vinte e dois mais oito";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("30", result);
     }
 
     @Test
     public void testCompositeNumbersMultiplication() {
         String input = "trinta e cinco vezes dois";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("70", result);
     }
 
     @Test
     public void testSquare() {
         String input = "cinco ao quadrado";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("25", result);
     }
 
     @Test
     public void testCube() {
         String input = "três ao cubo";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("27", result);
     }
 
     @Test
     public void testSquareRoot() {
         String input = "raiz quadrada de dezesseis";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("4", result);
     }
 
     @Test
     public void testComplexExpression() {
         String input = "dez mais cinco vezes dois";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("20", result); // (10 + 5) * 2 or 10 + (5*2)?  mXparser respects precedence: 10 + (5*2) = 20
     }
 
     @Test
     public void testWithPrefix() {
         String input = "quanto é quinze mais cinco";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("20", result);
     }
 
     @Test
     public void testWithSuffix() {
         String input = "oito vezes três por favor";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("24", result);
     }
 
     @Test
     public void testDecimalNumbers() {
         String input = "três vírgula cinco mais um vírgula cinco";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("5", result);
     }
 
     @Test
     public void testHundreds() {
         String input = "cento e vinte mais trinta";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("150", result);
     }
 
     @Test
     public void testSingleHundredWord() {
         String input = "cem";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("100", result);
     }
 
     @Test
     public void testSingleThousandWord() {
         String input = "mil";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("1000", result);
     }
 
     @Test
     public void testThousandDivision() {
         String input = "mil dividido por dois";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("500", result);
     }
 
@@ -142,15 +142,35 @@ public class VoiceRecognitionTest {
         assertEquals("10/1000000", result.getMathExpression());
     }
 
+    @Test
+    public void testSpokenNumbersBeyondLong() {
+        assertEquals("100001", VoiceCommandProcessor.processVoiceCommand("cem mil e um"));
+        assertEquals("500,0", VoiceCommandProcessor.processVoiceCommand("meia mil"));
+        assertEquals("1000000000000000000000",
+                VoiceCommandProcessor.processVoiceCommand("mil mil mil mil mil mil mil"));
+        assertEquals("900000000000000000000000000000,3",
+                VoiceCommandProcessor.processVoiceCommand("novecentos bilhões bilhões bilhões vírgula três"));
+    }
+
+    @Test
+    public void testSpokenNumberGroups() {
+        assertEquals("2345000", VoiceCommandProcessor.processVoiceCommand("dois milhões trezentos e quarenta e cinco mil"));
+        assertEquals("1500000", VoiceCommandProcessor.processVoiceCommand("um milhão e quinhentos mil"));
+        assertEquals("3002001004", VoiceCommandProcessor.processVoiceCommand("três bilhões dois milhões mil e quatro"));
+        assertEquals("2000000000", VoiceCommandProcessor.processVoiceCommand("dois mil milhões"));
+        assertEquals("7000000000000000000001000003",
+                VoiceCommandProcessor.processVoiceCommand("sete bilhões bilhões bilhões milhão e três"));
+    }
+
     @Test
     public void testDigitMillionEvaluation() {
-        String result = NativeVoiceRecognizer.calculateWithMXParser("dez dividido por 1 milhão");
+        String result = MXParserBridge.calculate("dez dividido por 1 milhão");
         assertEquals("0,00001", result);
     }
 
     @Test
     public void testPercentageEvaluation() {
-        String result = NativeVoiceRecognizer.calculateWithMXParser("vinte por cento mais cinco");
+        String result = MXParserBridge.calculate("vinte por cento mais cinco");
         assertEquals("5,2", result);
     }
 
@@ -162,7 +182,7 @@ public class VoiceRecognitionTest {
 
     @Test
     public void testPercentageOfExpression() {
-        String result = NativeVoiceRecognizer.calculateWithMXParser("dez porcento de cinquenta");
+        String result = MXParserBridge.calculate("dez porcento de cinquenta");
         assertEquals("5", result);
     }
 
@@ -174,7 +194,7 @@ public class VoiceRecognitionTest {
 
     @Test
     public void testPercentageSymbolExpression() {
-        String result = NativeVoiceRecognizer.calculateWithMXParser("10% de 40");
+        String result = MXParserBridge.calculate("10% de 40");
         assertEquals("4", result);
     }
 
@@ -186,7 +206,7 @@ public class VoiceRecognitionTest {
 
     @Test
     public void testFactorialEvaluation() {
-        String result = NativeVoiceRecognizer.calculateWithMXParser("fatorial de cinco");
+        String result = MXParserBridge.calculate("fatorial de cinco");
         assertEquals("120", result);
     }
 
@@ -199,28 +219,28 @@ public class VoiceRecognitionTest {
     @Test
     public void testNormalization() {
         String input = "calcule cinco mais três";
-        String normalized = NativeVoiceRecognizer.normalizeMathPhrase(input);
+        String normalized = MXParserBridge.normalizeMathPhrase(input);
         assertEquals("cinco mais três", normalized);
     }
 
     @Test
     public void testNormalizationWithSuffix() {
         String input = "dois vezes quatro igual";
-        String normalized = NativeVoiceRecognizer.normalizeMathPhrase(input);
+        String normalized = MXParserBridge.normalizeMathPhrase(input);
         assertEquals("dois vezes quatro", normalized);
     }
 
     @Test
     public void testLargeNumbers() {
         String input = "noventa e nove mais um";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("100", result);
     }
 
     @Test
     public void testMultipleOperations() {
         String input = "cem dividido por dois mais dez";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         // 100/2 + 10 = 50 + 10 = 60
         assertEquals("60", result);
     }
@@ -228,7 +248,7 @@ public class VoiceRecognitionTest {
     @Test
     public void testZero() {
         String input = "zero mais zero";
-        String result = NativeVoiceRecognizer.calculateWithMXParser(input);
+        String result = MXParserBridge.calculate(input);
         assertEquals("0", result);
     }
 
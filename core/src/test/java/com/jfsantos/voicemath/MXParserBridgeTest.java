@@ -0,0 +1,42 @@
+package com.jfsantos.voicemath;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MXParserBridgeTest {
+
+    @Test
+    public void testParsedExpressionsAreReused() {
+        String expression = "17*3+sqrt(49)";
+        assertEquals(58.0, MXParserBridge.evaluate(expression), 0.0);
+        int cached = MXParserBridge.cachedExpressionCount();
+        assertEquals(58.0, MXParserBridge.evaluate(expression), 0.0);
+        assertEquals(cached, MXParserBridge.cachedExpressionCount());
+        assertEquals("58", MXParserBridge.calculate("dezessete vezes três mais raiz quadrada de quarenta e nove"));
+    }
+
+    @Test
+    public void testInvalidExpressionStaysInvalidWhenReused() {
+        assertTrue(Double.isNaN(MXParserBridge.evaluate("2+*3")));
+        assertTrue(Double.isNaN(MXParserBridge.evaluate("2+*3")));
+    }
+
+    @Test(timeout = 10000)
+    public void testWarmUpRunsInBackground() throws InterruptedException {
+        Thread warmUp = MXParserBridge.warmUpInBackground();
+        assertTrue(warmUp.isDaemon());
+        assertSame(warmUp, MXParserBridge.warmUpInBackground());
+        warmUp.join();
+        assertEquals("30", MXParserBridge.calculate("quanto é vinte e dois mais oito"));
+    }
+
+    @Test
+    public void testPhrasePrefixesAndSuffixesNeedWordBoundaries() {
+        assertEquals("dois mais dois", MXParserBridge.normalizeMathPhrase("Quanto é\t dois mais dois  por favor"));
+        assertEquals("dois mais dois", MXParserBridge.normalizeMathPhrase("qual é o resultado de dois mais dois pf"));
+        assertEquals("calculex dois", MXParserBridge.normalizeMathPhrase("calculex dois"));
+        assertEquals("dois mais dois ponto de", MXParserBridge.normalizeMathPhrase("dois mais dois ponto de  interrogação"));
+        assertEquals("quanto é", MXParserBridge.normalizeMathPhrase("quanto é"));
+    }
+}